@@ -2,6 +2,9 @@ package net.kakoen.valheim.cli;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
@@ -10,10 +13,12 @@ import org.apache.commons.cli.ParseException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import net.kakoen.valheim.cli.processor.AddGlobalKeyProcessor;
 import net.kakoen.valheim.cli.processor.CleanStructuresProcessor;
 import net.kakoen.valheim.cli.processor.ListGlobalKeysProcessor;
+import net.kakoen.valheim.cli.processor.ProcessorContext;
 import net.kakoen.valheim.cli.processor.RemoveGlobalKeyProcessor;
 import net.kakoen.valheim.cli.processor.ResetWorldProcessor;
 import net.kakoen.valheim.cli.processor.ValheimArchiveProcessor;
@@ -21,9 +26,18 @@ import net.kakoen.valheim.save.archive.ValheimArchive;
 import net.kakoen.valheim.save.archive.ValheimArchiveType;
 import net.kakoen.valheim.save.archive.ValheimCharacter;
 import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.ValheimSaveJsonReader;
+import net.kakoen.valheim.save.archive.ValheimSaveJsonWriter;
 import net.kakoen.valheim.save.archive.ValheimSaveMetadata;
+import net.kakoen.valheim.save.archive.ValheimSaveNdjson;
+import net.kakoen.valheim.save.archive.ValheimSaveSnapshot;
 import net.kakoen.valheim.save.archive.hints.ValheimArchiveReaderHints;
 import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.columnar.ZdoColumnWriter;
+import net.kakoen.valheim.save.decode.LayeredNameResolver;
+import net.kakoen.valheim.save.decode.LearningNameResolver;
+import net.kakoen.valheim.save.decode.NameResolver;
+import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
 import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
 
 @Slf4j
@@ -48,27 +62,134 @@ public class SaveToolsCLI {
 			System.exit(1);
 		}
 		
+		NameResolver nameResolver = createNameResolver(cliOptions);
 		File inputFile = new File(cliOptions.getInputFileName());
-		ValheimArchive inputArchive = readValheimArchive(inputFile, cliOptions);
-		log.info("Archive type: " + inputArchive.getType());
-		
-		for(ValheimArchiveProcessor processor : PROCESSORS) {
-			if(processor.getType() == inputArchive.getType() && processor.isEnabled(cliOptions)) {
-				log.info("Applying processor " + processor.getClass().getSimpleName());
-				processor.process(inputArchive, cliOptions);
+		if(isStreamingJsonExport(inputFile, cliOptions)) {
+			convertToJson(inputFile, new File(cliOptions.getOutputFileName()), cliOptions, nameResolver);
+		} else if(isStreamingJsonImport(inputFile, cliOptions)) {
+			convertFromJson(inputFile, new File(cliOptions.getOutputFileName()), cliOptions);
+		} else if(isStreamingNdjsonImport(inputFile, cliOptions)) {
+			convertFromNdjson(inputFile, new File(cliOptions.getOutputFileName()), cliOptions);
+		} else {
+			ValheimArchive inputArchive = readValheimArchive(inputFile, cliOptions, nameResolver);
+			log.info("Archive type: " + inputArchive.getType());
+			
+			ProcessorContext processorContext = new ProcessorContext();
+			for(ValheimArchiveProcessor processor : PROCESSORS) {
+				if(processor.getType() == inputArchive.getType() && processor.isEnabled(cliOptions)) {
+					log.info("Applying processor " + processor.getClass().getSimpleName());
+					processor.process(inputArchive, cliOptions, processorContext);
+				}
+			}
+			
+			if(cliOptions.getOutputFileName() != null) {
+				saveArchive(inputArchive, new File(cliOptions.getOutputFileName()), cliOptions);
 			}
 		}
 		
-		if(cliOptions.getOutputFileName() != null) {
-			saveArchive(inputArchive, new File(cliOptions.getOutputFileName()));
+		if(nameResolver instanceof LearningNameResolver) {
+			writeUnresolvedNames((LearningNameResolver) nameResolver, new File(cliOptions.getUnresolvedNamesFileName()));
+		}
+	}
+	
+	/**
+	 * A .db file that's converted to JSON without processing can be written while it's read,
+	 * without loading all zdos first, unless it's loaded using a snapshot
+	 */
+	private static boolean isStreamingJsonExport(File inputFile, SaveToolsCLIOptions cliOptions) {
+		return ValheimArchiveType.fromFileName(inputFile.getName()) == ValheimArchiveType.DB
+				&& !cliOptions.isSnapshot()
+				&& cliOptions.getOutputFileName() != null
+				&& ValheimArchiveType.fromFileName(cliOptions.getOutputFileName()) == ValheimArchiveType.JSON
+				&& PROCESSORS.stream().noneMatch(processor -> processor.getType() == ValheimArchiveType.DB && processor.isEnabled(cliOptions));
+	}
+	
+	/**
+	 * JSON that's converted to a .db file without processing can be written while it's parsed,
+	 * without building the whole archive first
+	 */
+	private static boolean isStreamingJsonImport(File inputFile, SaveToolsCLIOptions cliOptions) {
+		return ValheimArchiveType.fromFileName(inputFile.getName()) == ValheimArchiveType.JSON
+				&& cliOptions.getOutputFileName() != null
+				&& ValheimArchiveType.fromFileName(cliOptions.getOutputFileName()) == ValheimArchiveType.DB
+				&& PROCESSORS.stream().noneMatch(processor -> processor.getType() == ValheimArchiveType.DB && processor.isEnabled(cliOptions));
+	}
+	
+	private static void convertFromJson(File inputFile, File outputFile, SaveToolsCLIOptions cliOptions) {
+		log.info("Converting JSON {} to {}", inputFile.getAbsolutePath(), outputFile.getAbsolutePath());
+		try {
+			ValheimSaveJsonReader.convert(inputFile, outputFile, cliOptions.getThreads());
+		} catch(IOException e) {
+			log.error("Failed to convert {} from JSON", inputFile.getAbsolutePath(), e);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * NDJSON, or its shards, converted to a .db file without processing is written in batches of zdos
+	 */
+	private static boolean isStreamingNdjsonImport(File inputFile, SaveToolsCLIOptions cliOptions) {
+		return ValheimArchiveType.fromFileName(inputFile.getName()) == ValheimArchiveType.NDJSON
+				&& cliOptions.getOutputFileName() != null
+				&& ValheimArchiveType.fromFileName(cliOptions.getOutputFileName()) == ValheimArchiveType.DB
+				&& PROCESSORS.stream().noneMatch(processor -> processor.getType() == ValheimArchiveType.DB && processor.isEnabled(cliOptions));
+	}
+	
+	private static void convertFromNdjson(File inputFile, File outputFile, SaveToolsCLIOptions cliOptions) {
+		log.info("Converting NDJSON {} to {}", inputFile.getAbsolutePath(), outputFile.getAbsolutePath());
+		try {
+			ValheimSaveNdjson.convert(inputFile, outputFile, cliOptions.getThreads());
+		} catch(IOException e) {
+			log.error("Failed to convert {} from NDJSON", inputFile.getAbsolutePath(), e);
+			System.exit(1);
+		}
+	}
+	
+	private static void convertToJson(File inputFile, File outputFile, SaveToolsCLIOptions cliOptions, NameResolver nameResolver) {
+		log.info("Converting {} to JSON {}", inputFile.getAbsolutePath(), outputFile.getAbsolutePath());
+		try {
+			ValheimSaveJsonWriter.convert(inputFile, createSaveReaderHints(cliOptions, nameResolver), outputFile, cliOptions.isPrettyJson());
+		} catch(IOException | ValheimArchiveUnsupportedVersionException e) {
+			log.error("Failed to convert {} to JSON", inputFile.getAbsolutePath(), e);
+			System.exit(1);
+		}
+	}
+	
+	private static NameResolver createNameResolver(SaveToolsCLIOptions cliOptions) {
+		NameResolver nameResolver = ReverseHashcodeLookup.INSTANCE;
+		if(!cliOptions.getNameDictionaries().isEmpty()) {
+			try {
+				nameResolver = LayeredNameResolver.withDictionaries(cliOptions.getNameDictionaries());
+			} catch(IOException e) {
+				log.error("Failed to read name dictionaries", e);
+				System.exit(1);
+			}
+		}
+		if(cliOptions.getUnresolvedNamesFileName() != null) {
+			nameResolver = new LearningNameResolver(nameResolver);
+		}
+		return nameResolver;
+	}
+	
+	/**
+	 * Names are resolved when they're asked for, so this covers the names that were looked up by
+	 * processors or written to JSON
+	 */
+	private static void writeUnresolvedNames(LearningNameResolver nameResolver, File outputFile) {
+		try(Writer writer = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+			nameResolver.writeUnresolved(writer);
+			log.info("Wrote {} unresolved names to {}", nameResolver.getUnresolved().size(), outputFile.getAbsolutePath());
+		} catch(IOException e) {
+			log.error("Failed to write unresolved names to {}", outputFile.getAbsolutePath(), e);
+			System.exit(1);
 		}
 	}
 	
-	private static void saveArchive(ValheimArchive valheimArchive, File outputFile) {
+	private static void saveArchive(ValheimArchive valheimArchive, File outputFile, SaveToolsCLIOptions cliOptions) {
 		ValheimArchiveType outputFileType = ValheimArchiveType.fromFileName(outputFile.getName());
 		if(outputFileType == null) {
 			log.error("Failed to determine archive type of output file {}", outputFile.getAbsolutePath());
-			log.error("Make sure the file name ends with .fch, .db, .fwl or .json");
+			log.error("Make sure the file name ends with .fch, .db, .fwl, .json, .ndjson or .zcol");
 			System.exit(1);
 		}
 		try {
@@ -81,10 +202,32 @@ public class SaveToolsCLI {
 						log.error("Make sure the input file type and output file type (extensions) are compatible");
 						System.exit(1);
 					}
-					valheimArchive.save(outputFile);
+					if(valheimArchive instanceof ValheimSaveArchive) {
+						((ValheimSaveArchive) valheimArchive).save(outputFile, cliOptions.getThreads());
+					} else {
+						valheimArchive.save(outputFile);
+					}
 					break;
 				case JSON:
-					writeJson(valheimArchive, outputFile);
+					if(valheimArchive instanceof ValheimSaveArchive) {
+						ValheimSaveJsonWriter.write((ValheimSaveArchive) valheimArchive, outputFile, cliOptions.isPrettyJson());
+					} else {
+						writeJson(valheimArchive, outputFile, cliOptions.isPrettyJson());
+					}
+					break;
+				case NDJSON:
+					if(!(valheimArchive instanceof ValheimSaveArchive)) {
+						log.error("Only .db archives can be written as NDJSON");
+						System.exit(1);
+					}
+					ValheimSaveNdjson.write((ValheimSaveArchive) valheimArchive, outputFile, cliOptions.getShards(), cliOptions.getThreads());
+					break;
+				case ZCOL:
+					if(!(valheimArchive instanceof ValheimSaveArchive)) {
+						log.error("Only .db archives can be written in columns");
+						System.exit(1);
+					}
+					ZdoColumnWriter.write((ValheimSaveArchive) valheimArchive, outputFile);
 					break;
 			}
 		} catch(IOException e) {
@@ -93,12 +236,12 @@ public class SaveToolsCLI {
 		}
 	}
 	
-	private static ValheimArchive readValheimArchive(File inputFile, SaveToolsCLIOptions cliOptions) {
+	private static ValheimArchive readValheimArchive(File inputFile, SaveToolsCLIOptions cliOptions, NameResolver nameResolver) {
 		log.info("Reading from {}", inputFile.getAbsolutePath());
 		ValheimArchiveType inputFileType = ValheimArchiveType.fromFileName(inputFile.getName());
 		if(inputFileType == null) {
 			log.error("Unable to determine type of input file {}", inputFile.getAbsolutePath());
-			log.error("Make sure the file name ends with .fch, .db, .fwl or .json");
+			log.error("Make sure the file name ends with .fch, .db, .fwl, .json or .ndjson");
 			System.exit(1);
 		}
 		try {
@@ -109,14 +252,10 @@ public class SaveToolsCLI {
 							applyGeneralHints(new ValheimArchiveReaderHints(), cliOptions)
 					);
 				case DB:
-					return new ValheimSaveArchive(
-							inputFile,
-							applyGeneralHints(
-								ValheimSaveReaderHints.builder()
-										.resolveNames(!cliOptions.isSkipResolveNames())
-										.build(),
-								cliOptions
-							));
+					if(cliOptions.isSnapshot()) {
+						return ValheimSaveSnapshot.load(inputFile, createSaveReaderHints(cliOptions, nameResolver));
+					}
+					return new ValheimSaveArchive(inputFile, createSaveReaderHints(cliOptions, nameResolver));
 				case FCH:
 					return new ValheimCharacter(
 							inputFile,
@@ -124,6 +263,11 @@ public class SaveToolsCLI {
 					);
 				case JSON:
 					return readJson(inputFile, ValheimArchive.class);
+				case NDJSON:
+					return ValheimSaveNdjson.read(inputFile);
+				case ZCOL:
+					log.error("Columnar files can only be written, read them with the library's ZdoColumnReader");
+					System.exit(1);
 			}
 		} catch(IOException | ValheimArchiveUnsupportedVersionException e) {
 			log.error("Failed to read input file {}", inputFile.getAbsolutePath(), e);
@@ -132,6 +276,20 @@ public class SaveToolsCLI {
 		return null;
 	}
 	
+	private static ValheimSaveReaderHints createSaveReaderHints(SaveToolsCLIOptions cliOptions, NameResolver nameResolver) {
+		return applyGeneralHints(
+				ValheimSaveReaderHints.builder()
+						.resolveNames(!cliOptions.isSkipResolveNames())
+						.nameResolver(nameResolver)
+						.retainZdoBytes(true)
+						.lazyZdoProperties(true)
+						.internStrings(true)
+						.threads(cliOptions.getThreads())
+						.build(),
+				cliOptions
+		);
+	}
+	
 	private static <T extends ValheimArchiveReaderHints> T applyGeneralHints(T hints, SaveToolsCLIOptions cliOptions) {
 		hints.setFailOnUnsupportedVersion(cliOptions.isFailOnUnsupportedVersion());
 		return hints;
@@ -141,11 +299,9 @@ public class SaveToolsCLI {
 		return new ObjectMapper().readerFor(clazz).readValue(inputFile);
 	}
 	
-	private static <T> void writeJson(T objectToWrite, File outputFile) throws IOException, JsonProcessingException {
-		new ObjectMapper()
-				.writer()
-				.withDefaultPrettyPrinter()
-				.writeValue(outputFile, objectToWrite);
+	private static <T> void writeJson(T objectToWrite, File outputFile, boolean pretty) throws IOException, JsonProcessingException {
+		ObjectWriter writer = new ObjectMapper().writer();
+		(pretty ? writer.withDefaultPrettyPrinter() : writer).writeValue(outputFile, objectToWrite);
 	}
 	
 }
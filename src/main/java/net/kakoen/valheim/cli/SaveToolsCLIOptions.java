@@ -1,5 +1,10 @@
 package net.kakoen.valheim.cli;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.cli.CommandLine;
@@ -11,6 +16,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import net.kakoen.valheim.cli.processor.CleanStructuresProcessor;
+import net.kakoen.valheim.save.archive.ValheimArchiveType;
 
 @Slf4j
 public class SaveToolsCLIOptions {
@@ -18,11 +24,17 @@ public class SaveToolsCLIOptions {
 	private final static Option LIST_GLOBAL_KEY_OPTION = new Option(null, "listGlobalKeys", false, "List global keys (.db only)");
 	private final static Option REMOVE_GLOBAL_KEY_OPTION = new Option(null, "removeGlobalKey", true, "Remove a global key, specify 'all' to remove all (.db only)");
 	private final static Option ADD_GLOBAL_KEY_OPTION = new Option(null, "addGlobalKey", true, "Adds a global key (.db only)");
-	private final static Option SKIP_RESOLVE_NAMES = new Option(null, "skipResolveNames", false, "Do not resolve names of prefabs and property keys (faster for processing, .db only)");
+	private final static Option SKIP_RESOLVE_NAMES = new Option(null, "skipResolveNames", false, "Do not resolve names of prefabs and property keys, keeping their hashes in the output (.db only)");
 	private final static Option RESET_WORLD = new Option(null, "resetWorld", false, "Regenerates all zones that don't have player-built structures in them (experimental, .db only)");
 	private final static Option CLEAN_STRUCTURES = new Option(null, "cleanStructures", false, "Cleans up player built structures (.db only)");
 	private final static Option CLEAN_STRUCTURES_THRESHOLD = new Option(null, "cleanStructuresThreshold", true, "Minimum amount of structures to consider as a base (default " + CleanStructuresProcessor.DEFAULT_STRUCTURES_THRESHOLD + ")");
 	private final static Option VERBOSE = new Option("v", "verbose", false, "Print debug output");
+	private final static Option THREADS = new Option(null, "threads", true, "Number of threads used to load and save zdos (default 1, .db only)");
+	private final static Option NAME_DICTIONARY = new Option(null, "nameDictionary", true, "Resolve names from a dictionary file, or all files in a directory, before the bundled names; can be repeated (.db only)");
+	private final static Option UNRESOLVED_NAMES = new Option(null, "unresolvedNames", true, "Write the hash codes of names that couldn't be resolved, with their counts, to a file (.db to .json or .ndjson only)");
+	private final static Option PRETTY_JSON = new Option(null, "prettyJson", false, "Indent JSON output, which is compact by default");
+	private final static Option SHARDS = new Option(null, "shards", true, "Number of files to split .ndjson output into, by sector (default 1)");
+	private final static Option SNAPSHOT = new Option(null, "snapshot", false, "Keep an index of the input file in <infile>.snapshot, so it loads faster next time (.db only)");
 	private final static Option FAIL_ON_UNSUPPORTED_VERSION = new Option(null, "failOnUnsupportedVersion", false, "Fail when input archive version is newer than known supported");
 	
 	private CommandLine cmd = null;
@@ -36,6 +48,20 @@ public class SaveToolsCLIOptions {
 		if(cmd.getArgs().length < 1) {
 			throw new ParseException("Expecting at least an input file, and optionally an output file");
 		}
+		if(getUnresolvedNamesFileName() != null) {
+			if(isSkipResolveNames()) {
+				throw new ParseException("--unresolvedNames can't be combined with --skipResolveNames, no names are resolved");
+			}
+			if(!resolvesNames()) {
+				throw new ParseException("--unresolvedNames needs a .db input file and a .json or .ndjson output file, names are only resolved when writing those");
+			}
+		}
+	}
+	
+	private boolean resolvesNames() {
+		ValheimArchiveType outputType = getOutputFileName() != null ? ValheimArchiveType.fromFileName(getOutputFileName()) : null;
+		return ValheimArchiveType.fromFileName(getInputFileName()) == ValheimArchiveType.DB
+				&& (outputType == ValheimArchiveType.JSON || outputType == ValheimArchiveType.NDJSON);
 	}
 	
 	public Options getOptions() {
@@ -48,6 +74,14 @@ public class SaveToolsCLIOptions {
 		options.addOption(CLEAN_STRUCTURES);
 		options.addOption(CLEAN_STRUCTURES_THRESHOLD);
 		CLEAN_STRUCTURES_THRESHOLD.setType(Integer.class);
+		options.addOption(THREADS);
+		THREADS.setType(Integer.class);
+		options.addOption(NAME_DICTIONARY);
+		options.addOption(UNRESOLVED_NAMES);
+		options.addOption(PRETTY_JSON);
+		options.addOption(SHARDS);
+		SHARDS.setType(Integer.class);
+		options.addOption(SNAPSHOT);
 		options.addOption(VERBOSE);
 		options.addOption(FAIL_ON_UNSUPPORTED_VERSION);
 		return options;
@@ -58,7 +92,7 @@ public class SaveToolsCLIOptions {
 		helpFormatter.printHelp("java -jar valheim-save-tools.jar <infile> [outfile]",
 				"",
 				getOptions(),
-				"<infile>: Input file of type .fch, .db, .fwl or .json\n<outfile>: Output file of type .fch, .db, .fwl or .json (optional)",
+				"<infile>: Input file of type .fch, .db, .fwl, .json or .ndjson\n<outfile>: Output file of type .fch, .db, .fwl, .json, .ndjson or .zcol (optional)",
 				true);
 	}
 	
@@ -101,6 +135,45 @@ public class SaveToolsCLIOptions {
 		}
 	}
 	
+	public int getThreads() {
+		try {
+			return cmd.hasOption(THREADS.getLongOpt())
+					? Integer.parseInt(cmd.getOptionValue(THREADS.getLongOpt()))
+					: 1;
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Threads must be a number");
+		}
+	}
+	
+	public List<File> getNameDictionaries() {
+		String[] values = cmd.getOptionValues(NAME_DICTIONARY.getLongOpt());
+		return values == null ? List.of() : Arrays.stream(values).map(File::new).collect(Collectors.toList());
+	}
+	
+	public String getUnresolvedNamesFileName() {
+		return cmd.getOptionValue(UNRESOLVED_NAMES.getLongOpt());
+	}
+	
+	public boolean isPrettyJson() {
+		return cmd.hasOption(PRETTY_JSON.getLongOpt());
+	}
+	
+	public int getShards() {
+		try {
+			return cmd.hasOption(SHARDS.getLongOpt())
+					? Integer.parseInt(cmd.getOptionValue(SHARDS.getLongOpt()))
+					: 1;
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Shards must be a number");
+		}
+	}
+	
+	public boolean isSnapshot() {
+		return cmd.hasOption(SNAPSHOT.getLongOpt());
+	}
+	
 	public String[] getAddGlobalKeys() {
 		return cmd.getOptionValues(ADD_GLOBAL_KEY_OPTION.getLongOpt());
 	}
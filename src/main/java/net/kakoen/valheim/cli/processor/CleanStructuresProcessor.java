@@ -1,5 +1,7 @@
 package net.kakoen.valheim.cli.processor;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -53,28 +55,27 @@ public class CleanStructuresProcessor implements ValheimArchiveProcessor {
 	}
 	
 	@Override
-	public void process(ValheimArchive archive, SaveToolsCLIOptions options) {
+	public void process(ValheimArchive archive, SaveToolsCLIOptions options, ProcessorContext context) {
 		ValheimSaveArchive valheimSaveArchive = (ValheimSaveArchive)archive;
 		int structuresThreshold = Optional.ofNullable(options.getCleanStructuresThreshold()).orElse(DEFAULT_STRUCTURES_THRESHOLD);
 		log.info("Structure count threshold: {}", structuresThreshold);
 		
 		long zdosBefore = valheimSaveArchive.getZdoList().size();
 		
-		Map<Vector2s, Set<Zdo>> playerBuiltStructuresBySector = new HashMap<>();
-		valheimSaveArchive.getZdoList().stream()
-				.filter(WorldProcessorUtils::isPlayerBuilt)
-				.forEach(zdo -> playerBuiltStructuresBySector.compute(zdo.getSector(), (k, v) -> {
-					if(v == null) v = new HashSet<>();
-					v.add(zdo);
-					return v;
-				}));
+		List<Zdo> zdoList = valheimSaveArchive.getZdoList();
+		ZdoClassification classification = context.getClassification(valheimSaveArchive);
+		Map<Vector2s, List<Zdo>> playerBuiltStructuresBySector = new HashMap<>();
+		classification.playerBuilt().forEach(index -> {
+			Zdo zdo = zdoList.get(index);
+			playerBuiltStructuresBySector.computeIfAbsent(zdo.getSector(), sector -> new ArrayList<>()).add(zdo);
+		});
 		
-		Map<Vector2s, Set<Zdo>> playerBuiltStructuresCountedBySector = new HashMap<>();
+		Map<Vector2s, List<Zdo>> playerBuiltStructuresCountedBySector = new HashMap<>();
 		playerBuiltStructuresBySector.forEach((sector, structures) -> {
 			playerBuiltStructuresCountedBySector.put(sector,
 					structures.stream()
-							.filter(CleanStructuresProcessor::countAsPlayerBuilt)
-							.collect(Collectors.toSet()));
+							.filter(zdo -> !PREFABS_EXCLUDED_FROM_COUNT.contains(zdo.getPrefab()))
+							.collect(Collectors.toList()));
 		});
 		
 		log.info("{} chunks with player built structures found", playerBuiltStructuresBySector.size());
@@ -88,7 +89,7 @@ public class CleanStructuresProcessor implements ValheimArchiveProcessor {
 				//Check neighbouring sectors, could be that the structure is on the edge of a chunk
 				count = getNeighbouringSectors(sector, true).stream()
 						.map(neighbour -> {
-							Set<Zdo> structuresInSector = playerBuiltStructuresCountedBySector.get(neighbour);
+							List<Zdo> structuresInSector = playerBuiltStructuresCountedBySector.get(neighbour);
 							return structuresInSector == null ? 0 : structuresInSector.size();
 						})
 						.reduce(0, Integer::sum);
@@ -125,13 +126,13 @@ public class CleanStructuresProcessor implements ValheimArchiveProcessor {
 		} while(chunksToKeep.size() > lastSize);
 		
 		//Keep ships
-		playerBuiltStructuresBySector.forEach((sector, structures) -> {
-			List<Zdo> shipPresent = structures.stream().filter(WorldProcessorUtils::isShip).collect(Collectors.toList());
-			if(shipPresent.size() > 0) {
-				chunksToKeep.add(sector);
-				chunksToClear.remove(sector);
-			}
-		});
+		classification.ships()
+				.filter(classification::isPlayerBuilt)
+				.forEach(index -> {
+					Vector2s sector = zdoList.get(index).getSector();
+					chunksToKeep.add(sector);
+					chunksToClear.remove(sector);
+				});
 		
 		if(options.isVerbose()) {
 			log.info("Chunks to keep: {}", chunksToKeep);
@@ -141,17 +142,24 @@ public class CleanStructuresProcessor implements ValheimArchiveProcessor {
 		}
 		
 		Map<String, Integer> countByType = new HashMap<>();
-		valheimSaveArchive.setZdoList(valheimSaveArchive.getZdoList().stream()
-				.filter(zdo -> {
-					boolean keep = chunksToKeep.contains(zdo.getSector()) || !WorldProcessorUtils.isPlayerBuilt(zdo);
-					if(!keep && options.isVerbose()) {
+		BitSet retained = new BitSet(zdoList.size());
+		retained.set(0, zdoList.size());
+		classification.playerBuilt()
+				.filter(index -> chunksToClear.contains(zdoList.get(index).getSector()))
+				.forEach(index -> {
+					retained.clear(index);
+					if(options.isVerbose()) {
+						Zdo zdo = zdoList.get(index);
 						countByType.compute(
-								Optional.ofNullable(ReverseHashcodeLookup.lookup(zdo.getPrefab()))
+								Optional.ofNullable(zdo.getPrefabName())
+								.or(() -> Optional.ofNullable(ReverseHashcodeLookup.lookup(zdo.getPrefab())))
 								.orElse(Integer.toString(zdo.getPrefab())), (k, v) -> v == null ? 1 : v + 1);
 					}
-					return keep;
-				})
+				});
+		valheimSaveArchive.setZdoList(retained.stream()
+				.mapToObj(zdoList::get)
 				.collect(Collectors.toList()));
+		context.setClassification(classification.retain(valheimSaveArchive, retained));
 		if(options.isVerbose()) {
 			log.info("Cleaning {}", countByType);
 		}
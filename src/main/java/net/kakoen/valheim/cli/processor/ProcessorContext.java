@@ -0,0 +1,29 @@
+package net.kakoen.valheim.cli.processor;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+
+/**
+ * State shared by the processors during one run of the tool, like the classification of the zdos
+ */
+public class ProcessorContext {
+
+	private ZdoClassification classification;
+
+	/**
+	 * Returns the classification of the zdos of the archive, classifying them again when the zdo
+	 * list was replaced, or zdos were added or removed, since they were classified
+	 */
+	public ZdoClassification getClassification(ValheimSaveArchive archive) {
+		if(classification == null || !classification.isCurrent(archive)) {
+			classification = ZdoClassification.classify(archive);
+		}
+		return classification;
+	}
+
+	/**
+	 * Shares a classification of the archive's current zdo list with the processors that run next
+	 */
+	public void setClassification(ZdoClassification classification) {
+		this.classification = classification;
+	}
+}
@@ -17,7 +17,7 @@ public class RemoveGlobalKeyProcessor implements ValheimArchiveProcessor {
 	}
 	
 	@Override
-	public void process(ValheimArchive archive, SaveToolsCLIOptions options) {
+	public void process(ValheimArchive archive, SaveToolsCLIOptions options, ProcessorContext context) {
 		ValheimSaveArchive valheimSaveArchive = (ValheimSaveArchive)archive;
 		if(valheimSaveArchive.getZones() == null || valheimSaveArchive.getZones().getGlobalKeys() == null) {
 			log.info("Global keys not present in archive");
@@ -1,8 +1,8 @@
 package net.kakoen.valheim.cli.processor;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -13,7 +13,7 @@ import net.kakoen.valheim.save.archive.ValheimArchive;
 import net.kakoen.valheim.save.archive.ValheimArchiveType;
 import net.kakoen.valheim.save.archive.ValheimSaveArchive;
 import net.kakoen.valheim.save.archive.save.PrefabLocation;
-import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.SectorIndex;
 import net.kakoen.valheim.save.archive.save.Zones;
 import net.kakoen.valheim.save.struct.Vector2i;
 import net.kakoen.valheim.save.struct.Vector2s;
@@ -31,16 +31,18 @@ public class ResetWorldProcessor implements ValheimArchiveProcessor {
 	}
 	
 	@Override
-	public void process(ValheimArchive valheimArchive, SaveToolsCLIOptions options) {
+	public void process(ValheimArchive valheimArchive, SaveToolsCLIOptions options, ProcessorContext context) {
 		ValheimSaveArchive archive = (ValheimSaveArchive)valheimArchive;
 		
 		Zones zones = archive.getZones();
 		
 		log.info("Resetting world...");
 		
+		SectorIndex sectorIndex = archive.getSectorIndex();
 		Set<Vector2s> keepSectors = new HashSet<>();
-		keepSectors.addAll(getSectorsWithPlayerBuiltStructures(archive.getZdoList()));
-		keepSectors.addAll(getSectorsWithBossStones(archive.getZdoList()));
+		ZdoClassification classification = context.getClassification(archive);
+		keepSectors.addAll(getSectorsWithPlayerBuiltStructures(classification));
+		keepSectors.addAll(getSectorsWithBossStones(classification));
 		
 		int zonesBefore = zones.getGeneratedZones().size();
 		zones.setGeneratedZones(zones.getGeneratedZones().stream()
@@ -50,9 +52,12 @@ public class ResetWorldProcessor implements ValheimArchiveProcessor {
 		log.info("Removed {} generated zones (before {}, after {})", (zonesBefore - zonesAfter), zonesBefore, zonesAfter);
 		
 		int zdosBefore = archive.getZdoList().size();
-		archive.setZdoList(archive.getZdoList().stream()
-				.filter(zdo -> keepSectors.contains(zdo.getSector()))
+		BitSet keptZdos = new BitSet(zdosBefore);
+		keepSectors.forEach(sector -> sectorIndex.forEachIndexInSector(sector, keptZdos::set));
+		archive.setZdoList(keptZdos.stream()
+				.mapToObj(archive.getZdoList()::get)
 				.collect(Collectors.toList()));
+		context.setClassification(classification.retain(archive, keptZdos));
 		int zdosAfter = archive.getZdoList().size();
 		log.info("Removed {} game objects (before {}, after {})", (zdosBefore - zdosAfter), zdosBefore, zdosAfter);
 		
@@ -74,23 +79,17 @@ public class ResetWorldProcessor implements ValheimArchiveProcessor {
 //		log.info("Removed {} dead zdos (before {}, after {})", (deadZdosBefore - deadZdosAfter), deadZdosBefore, deadZdosAfter);
 	}
 	
-	private Collection<? extends Vector2s> getSectorsWithBossStones(List<Zdo> zdoList) {
-		Set<Vector2s> sectorsWithBossStones = new HashSet<>();
-		zdoList.stream()
-				.filter(WorldProcessorUtils::isBossStone)
-				.forEach(zdo -> sectorsWithBossStones.add(zdo.getSector()));
-		return sectorsWithBossStones;
+	private Collection<? extends Vector2s> getSectorsWithBossStones(ZdoClassification classification) {
+		return classification.bossStones()
+				.mapToObj(index -> classification.getZdoList().get(index).getSector())
+				.collect(Collectors.toSet());
 	}
 	
-	private Collection<Vector2s> getSectorsWithPlayerBuiltStructures(List<Zdo> zdoList) {
-		Set<Vector2s> sectorsWithPlayerBuiltStructures = new HashSet<>();
-		List<Zdo> playerBuiltStructures = zdoList.stream()
-				.filter(WorldProcessorUtils::isPlayerBuilt)
-				.peek(zdo -> {
-					sectorsWithPlayerBuiltStructures.add(zdo.getSector());
-				})
-				.collect(Collectors.toList());
-		log.info("Found {} sectors with {} player built structures", sectorsWithPlayerBuiltStructures.size(), playerBuiltStructures.size());
+	private Collection<Vector2s> getSectorsWithPlayerBuiltStructures(ZdoClassification classification) {
+		Set<Vector2s> sectorsWithPlayerBuiltStructures = classification.playerBuilt()
+				.mapToObj(index -> classification.getZdoList().get(index).getSector())
+				.collect(Collectors.toSet());
+		log.info("Found {} sectors with {} player built structures", sectorsWithPlayerBuiltStructures.size(), classification.playerBuilt().count());
 		return sectorsWithPlayerBuiltStructures;
 	}
 	
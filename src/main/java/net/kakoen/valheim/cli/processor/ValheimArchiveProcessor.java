@@ -19,8 +19,8 @@ public interface ValheimArchiveProcessor {
 	
 	/**
 	 * Processes the given archive. At this point you can be certain that the type of the archive and the
-	 * enabled state have been checked.
+	 * enabled state have been checked. The context is shared by the processors of a run.
 	 */
-	void process(ValheimArchive archive, SaveToolsCLIOptions options);
+	void process(ValheimArchive archive, SaveToolsCLIOptions options, ProcessorContext context);
 	
 }
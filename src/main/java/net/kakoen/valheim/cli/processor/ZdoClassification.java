@@ -0,0 +1,149 @@
+package net.kakoen.valheim.cli.processor;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.save.PrefabIndex;
+import net.kakoen.valheim.save.archive.save.Zdo;
+
+/**
+ * Classifies the zdos of a world in one pass, keeping a bit per zdo for each class, indexed like
+ * the zdo list. Zdos are classified by their prefab through the {@link PrefabIndex}, and by their
+ * properties with a single walk over the zdos.
+ * <p>
+ * The classification of an archive is shared by the processors of a run through their
+ * {@link ProcessorContext}, so processors that run after each other don't classify the zdos again.
+ */
+@Slf4j
+public class ZdoClassification {
+
+	private final List<Zdo> zdoList;
+	private final int size;
+	private final BitSet creator;
+	private final BitSet playerBuilt;
+	private final BitSet ship;
+	private final BitSet bossStone;
+
+	private ZdoClassification(List<Zdo> zdoList, BitSet creator, BitSet playerBuilt, BitSet ship, BitSet bossStone) {
+		this.zdoList = zdoList;
+		this.size = zdoList.size();
+		this.creator = creator;
+		this.playerBuilt = playerBuilt;
+		this.ship = ship;
+		this.bossStone = bossStone;
+	}
+
+	/**
+	 * Classifies the zdos of the archive
+	 */
+	public static ZdoClassification classify(ValheimSaveArchive archive) {
+		List<Zdo> zdoList = archive.getZdoList();
+		PrefabIndex prefabIndex = archive.getPrefabIndex();
+
+		BitSet creator = new BitSet(zdoList.size());
+		BitSet ship = new BitSet(zdoList.size());
+		for(int i = 0; i < zdoList.size(); i++) {
+			Zdo zdo = zdoList.get(i);
+			if(zdo.hasProperty("creator")) {
+				creator.set(i);
+			}
+			if(zdo.hasProperty("rudder")) {
+				ship.set(i);
+			}
+		}
+
+		BitSet playerBuilt = (BitSet) creator.clone();
+		prefabIndex.forEachIndex(WorldProcessorUtils.DIGG_STABLE_HASHCODE, playerBuilt::set);
+		WorldProcessorUtils.SHIP_STABLE_HASHCODES.forEach(prefab -> prefabIndex.forEachIndex(prefab, ship::set));
+		BitSet bossStone = new BitSet(zdoList.size());
+		WorldProcessorUtils.BOSS_STONE_STABLE_HASHCODES.forEach(prefab -> prefabIndex.forEachIndex(prefab, bossStone::set));
+
+		log.info("Classified {} zdos: {} player built, {} ships, {} boss stones", zdoList.size(), playerBuilt.cardinality(), ship.cardinality(), bossStone.cardinality());
+		return new ZdoClassification(zdoList, creator, playerBuilt, ship, bossStone);
+	}
+
+	/**
+	 * Returns whether this is the classification of the archive's zdo list as it is now: the list
+	 * wasn't replaced, and no zdos were added to or removed from it since it was classified
+	 */
+	public boolean isCurrent(ValheimSaveArchive archive) {
+		return archive.getZdoList() == zdoList && zdoList.size() == size;
+	}
+
+	/**
+	 * Returns the classification of the retained zdos as the classification of the archive's new
+	 * zdo list, so the zdos don't have to be classified again
+	 *
+	 * @param retained The indices of the zdos in this classification that make up the new list, in order
+	 */
+	public ZdoClassification retain(ValheimSaveArchive archive, BitSet retained) {
+		if(archive.getZdoList().size() != retained.cardinality()) {
+			throw new IllegalStateException("Retained " + retained.cardinality() + " zdos, the new list has " + archive.getZdoList().size());
+		}
+		return new ZdoClassification(archive.getZdoList(),
+				retain(creator, retained),
+				retain(playerBuilt, retained),
+				retain(ship, retained),
+				retain(bossStone, retained));
+	}
+
+	private static BitSet retain(BitSet bits, BitSet retained) {
+		BitSet result = new BitSet(retained.cardinality());
+		int index = 0;
+		for(int i = retained.nextSetBit(0); i >= 0; i = retained.nextSetBit(i + 1)) {
+			if(bits.get(i)) {
+				result.set(index);
+			}
+			index++;
+		}
+		return result;
+	}
+
+	public List<Zdo> getZdoList() {
+		return zdoList;
+	}
+
+	public boolean hasCreator(int index) {
+		return creator.get(index);
+	}
+
+	/**
+	 * See {@link WorldProcessorUtils#isPlayerBuilt(Zdo)}
+	 */
+	public boolean isPlayerBuilt(int index) {
+		return playerBuilt.get(index);
+	}
+
+	/**
+	 * See {@link WorldProcessorUtils#isShip(Zdo)}
+	 */
+	public boolean isShip(int index) {
+		return ship.get(index);
+	}
+
+	/**
+	 * See {@link WorldProcessorUtils#isBossStone(Zdo)}
+	 */
+	public boolean isBossStone(int index) {
+		return bossStone.get(index);
+	}
+
+	/**
+	 * Returns the indices of the player built zdos, in ascending order
+	 */
+	public IntStream playerBuilt() {
+		return playerBuilt.stream();
+	}
+
+	public IntStream ships() {
+		return ship.stream();
+	}
+
+	public IntStream bossStones() {
+		return bossStone.stream();
+	}
+}
@@ -0,0 +1,97 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.kakoen.valheim.save.archive.ValheimCharacter;
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimArchiveReaderHints;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * Benchmarks loading and saving the bundled archives from and to files
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+
+	@Param({"TestWorld32.db", "TestWorld34.db"})
+	public String world;
+
+	/**
+	 * Whether zdos are read with {@link ValheimSaveReaderHints#isRetainZdoBytes()} and
+	 * {@link ValheimSaveReaderHints#isLazyZdoProperties()}, like the command line tool does
+	 */
+	@Param({"false", "true"})
+	public boolean lazy;
+
+	private File worldFile;
+	private File characterFile;
+	private File outputFile;
+	private ValheimSaveReaderHints hints;
+	private ValheimSaveArchive saveArchive;
+	private ValheimCharacter character;
+
+	@Setup
+	public void setup() throws IOException, ValheimArchiveUnsupportedVersionException {
+		worldFile = BenchmarkFiles.resource(world);
+		characterFile = BenchmarkFiles.resource("Kakoentest.fch");
+		outputFile = BenchmarkFiles.temporaryFile("output");
+		hints = ValheimSaveReaderHints.builder()
+				.retainZdoBytes(lazy)
+				.lazyZdoProperties(lazy)
+				.build();
+		saveArchive = new ValheimSaveArchive(worldFile, hints);
+		character = new ValheimCharacter(characterFile, ValheimArchiveReaderHints.builder().build());
+	}
+
+	@TearDown
+	public void tearDown() {
+		worldFile.delete();
+		characterFile.delete();
+		outputFile.delete();
+	}
+
+	@Benchmark
+	public ValheimSaveArchive loadWorld(ByteCounter counter) throws IOException, ValheimArchiveUnsupportedVersionException {
+		counter.bytes += worldFile.length();
+		return new ValheimSaveArchive(worldFile, hints);
+	}
+
+	@Benchmark
+	public void saveWorld(ByteCounter counter) throws IOException, ValheimArchiveUnsupportedVersionException {
+		saveArchive.save(outputFile);
+		counter.bytes += outputFile.length();
+	}
+
+	@Benchmark
+	public ValheimCharacter loadCharacter(ByteCounter counter) throws IOException, ValheimArchiveUnsupportedVersionException {
+		counter.bytes += characterFile.length();
+		return new ValheimCharacter(characterFile, ValheimArchiveReaderHints.builder().build());
+	}
+
+	@Benchmark
+	public void saveCharacter(ByteCounter counter) throws IOException, ValheimArchiveUnsupportedVersionException {
+		character.save(outputFile);
+		counter.bytes += outputFile.length();
+	}
+}
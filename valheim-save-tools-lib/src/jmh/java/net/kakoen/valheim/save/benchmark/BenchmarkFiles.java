@@ -0,0 +1,69 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.ValheimSaveWriter;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * Provides the save files the benchmarks run on: the files bundled with the tests, and
+ * synthetic worlds that repeat the zdos of a bundled world up to a given count.
+ */
+final class BenchmarkFiles {
+
+	/**
+	 * The size of the header of a *.db file in front of the zdos, for the current world version
+	 */
+	static final int DB_HEADER_SIZE = 4 + 8 + 8 + 4 + 4;
+
+	private BenchmarkFiles() {
+	}
+
+	/**
+	 * Copies a bundled file to a temporary file, as the archives are read from files
+	 */
+	static File resource(String name) throws IOException {
+		File file = temporaryFile(name);
+		try(InputStream is = BenchmarkFiles.class.getResourceAsStream("/" + name)) {
+			if(is == null) {
+				throw new IllegalStateException("Missing benchmark resource " + name);
+			}
+			Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	/**
+	 * Creates a world with the given number of zdos, repeating the zdos of TestWorld32.db.
+	 * The world is saved in the current world version.
+	 */
+	static File syntheticWorld(int zdoCount) throws IOException, ValheimArchiveUnsupportedVersionException {
+		File source = resource("TestWorld32.db");
+		ValheimSaveArchive archive = new ValheimSaveArchive(source, ValheimSaveReaderHints.builder().build());
+		source.delete();
+
+		File file = temporaryFile("Synthetic" + zdoCount + ".db");
+		List<Zdo> zdos = archive.getZdoList();
+		try(ValheimSaveWriter writer = new ValheimSaveWriter(file, archive.getMeta().getNetTime(), archive.getMyId(), archive.getNextUid())) {
+			for(int i = 0; i < zdoCount; i++) {
+				writer.writeZdo(zdos.get(i % zdos.size()));
+			}
+			writer.finish(archive.getZones(), archive.getRandomEvent());
+		}
+		return file;
+	}
+
+	static File temporaryFile(String name) throws IOException {
+		File file = File.createTempFile("benchmark", name);
+		file.deleteOnExit();
+		return file;
+	}
+}
@@ -0,0 +1,75 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.kakoen.valheim.save.decode.StableHashCode;
+
+/**
+ * Compares computing stable hash codes of property names to looking them up in the cache
+ * of {@link StableHashCode}, for the same string instances and for copies of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StableHashCodeBenchmark {
+
+	private static final String[] NAMES = {
+			"creator", "health", "owner", "text", "author", "ownerName", "items", "spawntime",
+			"tamed", "level", "durability", "stack", "quality", "variant", "crafterID", "crafterName",
+			"plantTime", "lastTime", "inUse", "addedDefaultItems", "$item_sword_iron", "TrophyDeer"
+	};
+
+	private String[] copies;
+
+	@Setup
+	public void setup() {
+		copies = new String[NAMES.length];
+		for(int i = 0; i < NAMES.length; i++) {
+			copies[i] = new String(NAMES[i].toCharArray());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(22)
+	public void compute(Blackhole blackhole) {
+		for(String name : NAMES) {
+			blackhole.consume(StableHashCode.computeStableHashCode(name));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(22)
+	public void cached(Blackhole blackhole) {
+		for(String name : NAMES) {
+			blackhole.consume(StableHashCode.getStableHashCode(name));
+		}
+	}
+
+	/**
+	 * Looks up strings that are equal to the cached ones but not the same instances, like
+	 * names read from a file, which need to be compared character by character
+	 */
+	@Benchmark
+	@OperationsPerInvocation(22)
+	public void cachedCopies(Blackhole blackhole) {
+		for(String name : copies) {
+			blackhole.consume(StableHashCode.getStableHashCode(name));
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * Benchmarks loading and saving worlds with millions of zdos, generated from the zdos of
+ * TestWorld32.db. The worlds are large, so each fork needs a large heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class SyntheticWorldBenchmark {
+
+	@Param({"1000000", "10000000"})
+	public int zdoCount;
+
+	/**
+	 * Whether zdos are read with {@link ValheimSaveReaderHints#isRetainZdoBytes()} and
+	 * {@link ValheimSaveReaderHints#isLazyZdoProperties()}, like the command line tool does
+	 */
+	@Param({"false", "true"})
+	public boolean lazy;
+
+	@Param({"1", "4"})
+	public int threads;
+
+	private File worldFile;
+	private File outputFile;
+	private ValheimSaveReaderHints hints;
+	private ValheimSaveArchive saveArchive;
+
+	@Setup
+	public void setup() throws IOException, ValheimArchiveUnsupportedVersionException {
+		worldFile = BenchmarkFiles.syntheticWorld(zdoCount);
+		outputFile = BenchmarkFiles.temporaryFile("output.db");
+		hints = ValheimSaveReaderHints.builder()
+				.retainZdoBytes(lazy)
+				.lazyZdoProperties(lazy)
+				.threads(threads)
+				.build();
+		saveArchive = new ValheimSaveArchive(worldFile, hints);
+	}
+
+	@TearDown
+	public void tearDown() {
+		worldFile.delete();
+		outputFile.delete();
+	}
+
+	@Benchmark
+	public ValheimSaveArchive load(ByteCounter counter) throws IOException, ValheimArchiveUnsupportedVersionException {
+		counter.bytes += worldFile.length();
+		return new ValheimSaveArchive(worldFile, hints);
+	}
+
+	@Benchmark
+	public void save(ByteCounter counter) throws IOException, ValheimArchiveUnsupportedVersionException {
+		saveArchive.save(outputFile, threads);
+		counter.bytes += outputFile.length();
+	}
+}
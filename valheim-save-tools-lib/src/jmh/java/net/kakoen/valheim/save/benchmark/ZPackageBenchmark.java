@@ -0,0 +1,137 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.kakoen.valheim.save.parser.ZPackage;
+
+/**
+ * Benchmarks the string and character primitives of {@link ZPackage}, which dominate
+ * reading prefab names, keys and player data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZPackageBenchmark {
+
+	private static final int COUNT = 1024;
+
+	/**
+	 * The length of the strings in characters
+	 */
+	@Param({"8", "64", "1024"})
+	public int length;
+
+	/**
+	 * Whether the strings contain multi-byte UTF-8 characters
+	 */
+	@Param({"false", "true"})
+	public boolean unicode;
+
+	/**
+	 * Whether strings are read from a direct buffer, like a mapped file, instead of an array
+	 */
+	@Param({"false", "true"})
+	public boolean direct;
+
+	private String[] strings;
+	private byte[] encodedStrings;
+	private byte[] encodedLengths;
+	private byte[] encodedChars;
+	private ByteBuffer stringBuffer;
+
+	@Setup
+	public void setup() {
+		strings = new String[COUNT];
+		ZPackage stringPackage = new ZPackage();
+		ZPackage lengthPackage = new ZPackage();
+		ZPackage charPackage = new ZPackage();
+		for(int i = 0; i < COUNT; i++) {
+			StringBuilder sb = new StringBuilder(length);
+			for(int j = 0; j < length; j++) {
+				int c = unicode && j % 4 == 0 ? 0x400 + (i + j) % 0x1000 : 'a' + (i + j) % 26;
+				sb.append((char) c);
+				charPackage.writeChar(c);
+			}
+			strings[i] = sb.toString();
+			stringPackage.writeString(strings[i]);
+			lengthPackage.writeStringLength(i * length);
+		}
+		encodedStrings = stringPackage.getBufferAsBytes();
+		encodedLengths = lengthPackage.getBufferAsBytes();
+		encodedChars = charPackage.getBufferAsBytes();
+		stringBuffer = direct ? ByteBuffer.allocateDirect(encodedStrings.length) : ByteBuffer.allocate(encodedStrings.length);
+		stringBuffer.put(encodedStrings).flip();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readString(Blackhole blackhole, ByteCounter counter) {
+		ZPackage zPackage = new ZPackage(stringBuffer);
+		for(int i = 0; i < COUNT; i++) {
+			blackhole.consume(zPackage.readString());
+		}
+		counter.bytes += encodedStrings.length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeString(Blackhole blackhole, ByteCounter counter) {
+		ZPackage zPackage = new ZPackage();
+		for(int i = 0; i < COUNT; i++) {
+			zPackage.writeString(strings[i]);
+		}
+		blackhole.consume(zPackage);
+		counter.bytes += encodedStrings.length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readStringLength(Blackhole blackhole, ByteCounter counter) {
+		ZPackage zPackage = new ZPackage(encodedLengths);
+		for(int i = 0; i < COUNT; i++) {
+			blackhole.consume(zPackage.readStringLength());
+		}
+		counter.bytes += encodedLengths.length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeStringLength(Blackhole blackhole, ByteCounter counter) {
+		ZPackage zPackage = new ZPackage();
+		for(int i = 0; i < COUNT; i++) {
+			zPackage.writeStringLength(i * length);
+		}
+		blackhole.consume(zPackage);
+		counter.bytes += encodedLengths.length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readChar(Blackhole blackhole, ByteCounter counter) {
+		ZPackage zPackage = new ZPackage(encodedChars);
+		for(int i = 0; i < COUNT; i++) {
+			for(int j = 0; j < length; j++) {
+				blackhole.consume(zPackage.readChar());
+			}
+		}
+		counter.bytes += encodedChars.length;
+	}
+}
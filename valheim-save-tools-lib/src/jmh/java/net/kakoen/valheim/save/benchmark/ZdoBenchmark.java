@@ -0,0 +1,138 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.ZdoSource;
+import net.kakoen.valheim.save.decode.StableHashCode;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+import net.kakoen.valheim.save.parser.ZPackage;
+import net.kakoen.valheim.save.struct.Vector2s;
+import net.kakoen.valheim.save.struct.Vector3;
+
+/**
+ * Benchmarks decoding and encoding all zdos of a world, in memory. The zdos are encoded in
+ * the current world version first, so every world decodes the same format. One operation
+ * is one pass over all zdos of the world.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZdoBenchmark {
+
+	private static final int SEGMENT_SIZE = 64 * 1024;
+	private static final String SIGNS = "Signs";
+	private static final int SIGN_COUNT = 20000;
+
+	/**
+	 * A bundled world, or Signs for generated zdos with string properties like those of signs and tombstones
+	 */
+	@Param({"TestWorld32.db", "TestWorld34.db", "Signs"})
+	public String world;
+
+	/**
+	 * Whether to resolve the names of properties and prefabs while decoding
+	 */
+	@Param({"false", "true"})
+	public boolean resolveNames;
+
+	private byte[] encoded;
+	private int zdosLength;
+	private List<Zdo> zdos;
+	private ValheimSaveReaderHints hints;
+
+	@Setup
+	public void setup() throws IOException, ValheimArchiveUnsupportedVersionException {
+		if(SIGNS.equals(world)) {
+			zdos = createSigns();
+		} else {
+			File source = BenchmarkFiles.resource(world);
+			zdos = new ValheimSaveArchive(source, ValheimSaveReaderHints.builder().build()).getZdoList();
+			source.delete();
+		}
+		ZPackage zPackage = new ZPackage();
+		zPackage.writeBytes(new byte[BenchmarkFiles.DB_HEADER_SIZE]);
+		for(Zdo zdo : zdos) {
+			zdo.save(zPackage);
+		}
+		encoded = zPackage.getBufferAsBytes();
+		zdosLength = encoded.length - BenchmarkFiles.DB_HEADER_SIZE;
+		hints = ValheimSaveReaderHints.builder().resolveNames(resolveNames).build();
+	}
+
+	private static List<Zdo> createSigns() {
+		List<Zdo> signs = new ArrayList<>();
+		for(int i = 0; i < SIGN_COUNT; i++) {
+			Zdo zdo = new Zdo();
+			zdo.setPersistent(true);
+			zdo.setSector(new Vector2s((short) (i % 100), (short) (i / 100)));
+			zdo.setPosition(new Vector3(i, 30, i));
+			Map<String, String> strings = new LinkedHashMap<>();
+			if(i % 2 == 0) {
+				zdo.setPrefab(StableHashCode.getStableHashCode("sign"));
+				strings.put("text", "Welcome to base " + i + ", mind the trolls");
+				strings.put("author", "Player" + i % 10);
+			} else {
+				zdo.setPrefab(StableHashCode.getStableHashCode("Player_tombstone"));
+				strings.put("ownerName", "Player" + i % 10);
+				strings.put("items", "Sword" + i + "Hammer" + i);
+			}
+			zdo.setStringsByName(strings);
+			signs.add(zdo);
+		}
+		return signs;
+	}
+
+	@Benchmark
+	public void decode(Blackhole blackhole, ByteCounter counter) {
+		readZdos(blackhole);
+		counter.bytes += zdosLength;
+	}
+
+	@Benchmark
+	public void encode(Blackhole blackhole, ByteCounter counter) {
+		ZPackage zPackage = ZPackage.segmented(SEGMENT_SIZE, false);
+		for(Zdo zdo : zdos) {
+			zdo.save(zPackage);
+		}
+		blackhole.consume(zPackage);
+		counter.bytes += zdosLength;
+	}
+
+	private ZPackage readZdos(Blackhole blackhole) {
+		ZPackage zPackage = new ZPackage(encoded);
+		zPackage.setPosition(BenchmarkFiles.DB_HEADER_SIZE);
+		ZdoSource zdoSource = new ZdoSource(zPackage, ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION, hints);
+		for(int i = 0; i < zdos.size(); i++) {
+			Zdo zdo = new Zdo(zPackage, zdoSource);
+			if(blackhole != null) {
+				blackhole.consume(zdo);
+			}
+		}
+		return zPackage;
+	}
+}
@@ -0,0 +1,104 @@
+package net.kakoen.valheim.save.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.columnar.ColumnChunk;
+import net.kakoen.valheim.save.columnar.ZdoColumn;
+import net.kakoen.valheim.save.columnar.ZdoColumnReader;
+import net.kakoen.valheim.save.columnar.ZdoColumnWriter;
+import net.kakoen.valheim.save.columnar.ZdoTable;
+import net.kakoen.valheim.save.decode.StableHashCode;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * Benchmarks a query that needs two fields of every zdo, the average height of the instances of
+ * a prefab, on a loaded archive and on a columnar file of the same world.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class ZdoColumnBenchmark {
+
+	private static final int PREFAB = StableHashCode.getStableHashCode("Rock_4");
+
+	@Param({"1000000"})
+	public int zdoCount;
+
+	private File worldFile;
+	private File columnFile;
+	private ValheimSaveArchive saveArchive;
+	private ZdoColumnReader reader;
+
+	@Setup
+	public void setup() throws IOException, ValheimArchiveUnsupportedVersionException {
+		worldFile = BenchmarkFiles.syntheticWorld(zdoCount);
+		columnFile = BenchmarkFiles.temporaryFile("world.zcol");
+		saveArchive = new ValheimSaveArchive(worldFile, ValheimSaveReaderHints.builder().build());
+		ZdoColumnWriter.write(saveArchive, columnFile);
+		reader = new ZdoColumnReader(columnFile);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		worldFile.delete();
+		columnFile.delete();
+	}
+
+	@Benchmark
+	public double averageHeightFromArchive() {
+		double sum = 0;
+		int count = 0;
+		for(Zdo zdo : saveArchive.getZdoList()) {
+			if(zdo.getPrefab() == PREFAB) {
+				sum += zdo.getPosition().getY();
+				count++;
+			}
+		}
+		return sum / count;
+	}
+
+	@Benchmark
+	public double averageHeightFromColumns() throws IOException {
+		int prefab = Arrays.binarySearch(reader.getPrefabDictionary(), PREFAB);
+		double sum = 0;
+		int count = 0;
+		for(int group = 0; group < reader.getRowGroupCount(ZdoTable.ZDOS); group++) {
+			if(!reader.mayContain(ZdoColumn.PREFAB, group, prefab, prefab)) {
+				continue;
+			}
+			ColumnChunk prefabs = reader.getChunk(ZdoColumn.PREFAB, group);
+			FloatBuffer heights = reader.getChunk(ZdoColumn.POSITION_Y, group).getData().asFloatBuffer();
+			for(int row = 0; row < prefabs.getSize(); row++) {
+				if(prefabs.getInt(row) == prefab) {
+					sum += heights.get(row);
+					count++;
+				}
+			}
+		}
+		return sum / count;
+	}
+}
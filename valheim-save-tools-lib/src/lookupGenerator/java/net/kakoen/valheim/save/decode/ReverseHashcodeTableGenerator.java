@@ -0,0 +1,29 @@
+package net.kakoen.valheim.save.decode;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Generates the table used by {@link ReverseHashcodeLookup} when building the library.
+ * Arguments: the known strings file to read, and the table file to write.
+ */
+public class ReverseHashcodeTableGenerator {
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2) {
+			throw new IllegalStateException("Usage: ReverseHashcodeTableGenerator <known strings> <output table>");
+		}
+		ReverseHashcodeLookup lookup;
+		try(InputStream is = new FileInputStream(args[0])) {
+			lookup = ReverseHashcodeLookup.fromKnownStrings(is);
+		}
+		try(OutputStream os = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+			lookup.write(os);
+		}
+		System.out.println("Wrote " + lookup.size() + " strings to " + args[1]);
+	}
+}
@@ -6,7 +6,9 @@ public enum ValheimArchiveType {
 	FCH("fch"),
 	DB("db"),
 	FWL("fwl"),
-	JSON("json");
+	JSON("json"),
+	NDJSON("ndjson"),
+	ZCOL("zcol");
 	
 	@Getter
 	private final String extension;
@@ -3,20 +3,28 @@ package net.kakoen.valheim.save.archive;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
-import net.kakoen.valheim.save.archive.save.DeadZdo;
 import net.kakoen.valheim.save.archive.save.Meta;
+import net.kakoen.valheim.save.archive.save.PrefabIndex;
 import net.kakoen.valheim.save.archive.save.RandomEvent;
+import net.kakoen.valheim.save.archive.save.SectorIndex;
 import net.kakoen.valheim.save.archive.save.Zdo;
 import net.kakoen.valheim.save.archive.save.Zones;
 import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
-import net.kakoen.valheim.save.parser.ZPackage;
 
 /**
  * Reads the *.db save files
@@ -38,67 +46,88 @@ public class ValheimSaveArchive implements ValheimArchive {
 	private RandomEvent randomEvent;
 	
 	private List<Zdo> zdoList = new ArrayList<>();
+	
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private SectorIndex sectorIndex;
+	
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private PrefabIndex prefabIndex;
 
 	public ValheimSaveArchive(File file, ValheimSaveReaderHints hints) throws IOException, ValheimArchiveUnsupportedVersionException {
-		meta = new Meta();
-		modified = file.lastModified();
-		meta.setModified(file.lastModified());
-		try(ZPackage zPackage = new ZPackage(file)) {
-			meta.setWorldVersion(zPackage.readInt32());
-			if(meta.getWorldVersion() > MAX_SUPPORTED_WORLD_VERSION) {
-				if(hints.isFailOnUnsupportedVersion()) {
-					throw new ValheimArchiveUnsupportedVersionException(ValheimSaveArchive.class, "world", meta.getWorldVersion(), MAX_SUPPORTED_WORLD_VERSION);
-				}
-				log.warn("WARNING: world version is {}, the maximum tested world version is {}", meta.getWorldVersion(), MAX_SUPPORTED_WORLD_VERSION);
-			} else {
-				log.info("World version: {}", meta.getWorldVersion());
-			}
-			meta.setNetTime(zPackage.readDouble());
+		try(ValheimSaveReader reader = new ValheimSaveReader(file, hints)) {
+			meta = reader.getMeta();
+			modified = meta.getModified();
 			
-			loadZdos(zPackage, meta.getWorldVersion(), hints);
+			loadZdos(reader, hints.getThreads());
 			
-			zones = new Zones();
-			zones.load(zPackage, meta.getWorldVersion());
-			
-			randomEvent = new RandomEvent(zPackage);
+			zones = reader.getZones();
+			randomEvent = reader.getRandomEvent();
 		}
 	}
 	
 	@Override
 	public void save(File file) throws IOException {
-		try(ZPackage zPackage = new ZPackage()) {
-			zPackage.writeInt32(MAX_SUPPORTED_WORLD_VERSION);
-			zPackage.writeDouble(meta.getNetTime());
-			writeZdos(zPackage);
-			zPackage.writeTo(file);
+		save(file, 1);
+	}
+	
+	/**
+	 * Saves the archive, encoding the zdos on the given number of threads
+	 */
+	public void save(File file, int threads) throws IOException {
+		try(ValheimSaveWriter writer = new ValheimSaveWriter(file, meta.getNetTime(), myId, nextUid)) {
+			writer.writeZdos(zdoList, threads);
+			writer.finish(zones, randomEvent);
 		}
 	}
 	
-	@Override
-	public ValheimArchiveType getType() {
-		return ValheimArchiveType.DB;
+	/**
+	 * Returns the zdos grouped by sector. The index is built when it's first asked for, and is
+	 * checked against the zdos every time, see {@link SectorIndex#isCurrent(List)}. It's built
+	 * again when the zdo list was replaced or changed, or zdos were moved to other sectors.
+	 */
+	@JsonIgnore
+	public SectorIndex getSectorIndex() {
+		if(sectorIndex == null || !sectorIndex.isCurrent(zdoList)) {
+			sectorIndex = SectorIndex.build(zdoList);
+		}
+		return sectorIndex;
 	}
 	
-	private void writeZdos(ZPackage writer) {
-		writer.writeLong(myId);
-		writer.writeUInt(nextUid);
-		
-		writer.writeInt32(zdoList.size());
-		zdoList.forEach(zdo -> zdo.save(writer));
-
-		zones.save(writer);
-		
-		randomEvent.save(writer);
+	/**
+	 * Uses an index that was built for the zdo list before, see {@link ValheimSaveSnapshot}
+	 */
+	void setSectorIndex(SectorIndex sectorIndex) {
+		this.sectorIndex = sectorIndex;
 	}
 	
-	private void loadZdos(ZPackage reader, int version, ValheimSaveReaderHints hints) throws ValheimArchiveUnsupportedVersionException {
-		myId = reader.readLong();
-		nextUid = reader.readUInt();
-		int numberOfZdos = reader.readInt32();
-		for(int i = 0; i < numberOfZdos; i++) {
-			Zdo zdo = new Zdo(reader, version, hints);
-			zdoList.add(zdo);
+	/**
+	 * Returns the zdos grouped by prefab, built and rebuilt like {@link #getSectorIndex()}
+	 */
+	@JsonIgnore
+	public PrefabIndex getPrefabIndex() {
+		if(prefabIndex == null || !prefabIndex.isCurrent(zdoList)) {
+			prefabIndex = PrefabIndex.build(zdoList);
 		}
+		return prefabIndex;
+	}
+	
+	@Override
+	public ValheimArchiveType getType() {
+		return ValheimArchiveType.DB;
+	}
+	
+	private void loadZdos(ValheimSaveReader reader, int threads) throws ValheimArchiveUnsupportedVersionException {
+		myId = reader.getMyId();
+		nextUid = reader.getNextUid();
+		zdoList = new ArrayList<>(Arrays.asList(reader.readRemainingZdos(threads)));
 		log.info("Loaded {} zdos", zdoList.size());
 	}
 	
@@ -0,0 +1,150 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.save.Meta;
+import net.kakoen.valheim.save.archive.save.RandomEvent;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.Zones;
+
+/**
+ * Converts the JSON of a *.db save file, as written by {@link ValheimSaveJsonWriter} or by
+ * serializing a {@link ValheimSaveArchive}, back to a save file. The JSON is parsed token by
+ * token, and the zdos are passed to a {@link ValheimSaveWriter} in small batches as they're
+ * parsed, so the size of the world doesn't affect the memory needed to convert it.
+ * <p>
+ * The header of the save file is written when the zdo list is reached, so the meta, myId and
+ * nextUid fields have to come before it for the zdos to be streamed, which they do in both
+ * kinds of JSON. Zdos found before them are kept in memory until the end of the document.
+ * JSON that isn't a world, or misses any of these fields, fails with a {@link JsonParseException}.
+ */
+@Slf4j
+public class ValheimSaveJsonReader {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final int BATCH_SIZE = 16 * 1024;
+
+	private final File outputFile;
+	private final int threads;
+
+	private Meta meta;
+	private Long myId;
+	private Long nextUid;
+	private Zones zones;
+	private RandomEvent randomEvent;
+	private ValheimSaveWriter writer;
+	private List<Zdo> bufferedZdos;
+
+	private ValheimSaveJsonReader(File outputFile, int threads) {
+		this.outputFile = outputFile;
+		this.threads = threads;
+	}
+
+	/**
+	 * Converts a JSON file to a save file, encoding the zdos on the given number of threads
+	 *
+	 * @return The number of zdos written
+	 */
+	public static int convert(File inputFile, File outputFile, int threads) throws IOException {
+		try(JsonParser parser = OBJECT_MAPPER.getFactory().createParser(inputFile)) {
+			return new ValheimSaveJsonReader(outputFile, threads).convert(parser);
+		}
+	}
+
+	private int convert(JsonParser parser) throws IOException {
+		if(parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new JsonParseException(parser, "Expected a JSON object");
+		}
+		try {
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				parser.nextToken();
+				switch(field) {
+					case "type":
+						if(!ValheimArchiveType.DB.name().equals(parser.getText())) {
+							throw new JsonParseException(parser, "Expected an archive of type DB, found " + parser.getText());
+						}
+						break;
+					case "meta":
+						meta = parser.readValueAs(Meta.class);
+						break;
+					case "myId":
+						myId = parser.getLongValue();
+						break;
+					case "nextUid":
+						nextUid = parser.getLongValue();
+						break;
+					case "zones":
+						zones = parser.readValueAs(Zones.class);
+						break;
+					case "randomEvent":
+						randomEvent = parser.readValueAs(RandomEvent.class);
+						break;
+					case "zdoList":
+						readZdos(parser);
+						break;
+					default:
+						parser.skipChildren();
+				}
+			}
+			if(zones == null || randomEvent == null) {
+				throw new JsonParseException(parser, "JSON is missing the zones or random event of the world");
+			}
+			if(writer == null) {
+				openWriter(parser);
+			}
+			if(bufferedZdos != null) {
+				writer.writeZdos(bufferedZdos, threads);
+			}
+			writer.finish(zones, randomEvent);
+			return writer.getZdoCount();
+		} finally {
+			if(writer != null) {
+				writer.close();
+			}
+		}
+	}
+
+	private void readZdos(JsonParser parser) throws IOException {
+		if(parser.currentToken() != JsonToken.START_ARRAY) {
+			throw new JsonParseException(parser, "Expected the zdo list to be an array");
+		}
+		boolean streaming = meta != null && myId != null && nextUid != null;
+		if(streaming) {
+			if(writer == null) {
+				openWriter(parser);
+			}
+		} else {
+			log.warn("Zdos come before the header of the world in the JSON, keeping them in memory");
+			bufferedZdos = new ArrayList<>();
+		}
+		List<Zdo> batch = streaming ? new ArrayList<>(BATCH_SIZE) : bufferedZdos;
+		while(parser.nextToken() != JsonToken.END_ARRAY) {
+			batch.add(parser.readValueAs(Zdo.class));
+			if(streaming && batch.size() == BATCH_SIZE) {
+				writer.writeZdos(batch, threads);
+				batch.clear();
+			}
+		}
+		if(streaming) {
+			writer.writeZdos(batch, threads);
+		}
+	}
+
+	private void openWriter(JsonParser parser) throws IOException {
+		if(meta == null || myId == null || nextUid == null) {
+			throw new JsonParseException(parser, "JSON is missing the meta, myId or nextUid of the world");
+		}
+		writer = new ValheimSaveWriter(outputFile, meta.getNetTime(), myId, nextUid);
+	}
+}
@@ -0,0 +1,119 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Meta;
+import net.kakoen.valheim.save.archive.save.RandomEvent;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.Zones;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * Writes *.db save files as JSON one zdo at a time, straight to a {@link JsonGenerator}, so the
+ * size of the world doesn't affect the memory needed to write it. The JSON has the fields of
+ * {@link ValheimSaveArchive} and can be read back as a {@link ValheimArchive}, but the zdos are
+ * written before the zones and random event, in the order they're stored in the save file.
+ * <p>
+ * The output is compact unless pretty printing is asked for.
+ */
+@Slf4j
+public class ValheimSaveJsonWriter implements AutoCloseable {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+	private final JsonGenerator generator;
+
+	@Getter
+	private int zdoCount;
+	private boolean finished;
+
+	public ValheimSaveJsonWriter(File file, Meta meta, long myId, long nextUid, boolean pretty) throws IOException {
+		this(new FileOutputStream(file), meta, myId, nextUid, pretty);
+	}
+
+	/**
+	 * Writes to the stream, which is closed when the writer is closed
+	 */
+	public ValheimSaveJsonWriter(OutputStream os, Meta meta, long myId, long nextUid, boolean pretty) throws IOException {
+		generator = OBJECT_MAPPER.getFactory().createGenerator(os, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+		if(pretty) {
+			generator.useDefaultPrettyPrinter();
+		}
+		generator.writeStartObject();
+		generator.writeStringField("type", ValheimArchiveType.DB.name());
+		generator.writeObjectField("meta", meta);
+		generator.writeNumberField("modified", meta.getModified());
+		generator.writeNumberField("myId", myId);
+		generator.writeNumberField("nextUid", nextUid);
+		generator.writeArrayFieldStart("zdoList");
+	}
+
+	/**
+	 * Converts a save file to JSON, reading and writing one zdo at a time
+	 */
+	public static void convert(File inputFile, ValheimSaveReaderHints hints, File outputFile, boolean pretty) throws IOException, ValheimArchiveUnsupportedVersionException {
+		try(ValheimSaveReader reader = new ValheimSaveReader(inputFile, hints);
+			ValheimSaveJsonWriter writer = new ValheimSaveJsonWriter(outputFile, reader.getMeta(), reader.getMyId(), reader.getNextUid(), pretty)) {
+			Zdo zdo;
+			while((zdo = reader.readZdo()) != null) {
+				writer.writeZdo(zdo);
+			}
+			writer.finish(reader.getZones(), reader.getRandomEvent());
+		}
+	}
+
+	/**
+	 * Writes an archive that's in memory as JSON, one zdo at a time
+	 */
+	public static void write(ValheimSaveArchive archive, File outputFile, boolean pretty) throws IOException {
+		try(ValheimSaveJsonWriter writer = new ValheimSaveJsonWriter(outputFile, archive.getMeta(), archive.getMyId(), archive.getNextUid(), pretty)) {
+			for(Zdo zdo : archive.getZdoList()) {
+				writer.writeZdo(zdo);
+			}
+			writer.finish(archive.getZones(), archive.getRandomEvent());
+		}
+	}
+
+	public void writeZdo(Zdo zdo) throws IOException {
+		generator.writeObject(zdo);
+		zdoCount++;
+	}
+
+	/**
+	 * Writes the sections following the zdos and completes the JSON
+	 */
+	public void finish(Zones zones, RandomEvent randomEvent) throws IOException {
+		if(finished) {
+			throw new IllegalStateException("JSON is already finished");
+		}
+		generator.writeEndArray();
+		generator.writeObjectField("zones", zones);
+		generator.writeObjectField("randomEvent", randomEvent);
+		generator.writeEndObject();
+		generator.flush();
+		finished = true;
+		log.info("Wrote {} zdos as JSON", zdoCount);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(!finished) {
+			log.warn("JSON was closed before it was finished, it is incomplete");
+		}
+		generator.close();
+	}
+}
@@ -0,0 +1,327 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.struct.Vector2s;
+
+/**
+ * Reads and writes *.db save files as newline delimited JSON: a header line with everything but
+ * the zdos, followed by a line per zdo in the JSON form of {@link ValheimSaveArchive}. Unlike one
+ * JSON document, the lines can be split up and processed in parallel by other tools.
+ * <p>
+ * The zdos can be spread over several shards by the hash of their sector, so all zdos of a sector
+ * end up in the same shard. Shard i of world.ndjson is written to world-i.ndjson, and each shard
+ * starts with the same header, apart from its number and zdo count. Within a shard, zdos keep
+ * the order of the archive.
+ * <p>
+ * The files are written to temporary files first, which replace the files once all of them are
+ * complete. Files of a previous write in the other layout, or shards beyond the new number of
+ * shards, are deleted then, so they can't be read instead of the new files.
+ */
+@Slf4j
+public class ValheimSaveNdjson {
+
+	public static final String EXTENSION = ".ndjson";
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final ObjectReader ZDO_READER = OBJECT_MAPPER.readerFor(Zdo.class);
+	private static final int SLICE_SIZE = 2048;
+	private static final int BATCH_SIZE = 16 * 1024;
+
+	private ValheimSaveNdjson() {
+	}
+
+	/**
+	 * Writes the archive to the file, or to the given number of shards next to it, replacing the
+	 * files of a previous write. Slices of the zdos are encoded concurrently on the given number
+	 * of threads, and written in order.
+	 *
+	 * @return The files that were written
+	 */
+	public static List<File> write(ValheimSaveArchive archive, File file, int shards, int threads) throws IOException {
+		if(shards < 1) {
+			throw new IllegalArgumentException("Number of shards must be at least 1");
+		}
+		List<Zdo> zdos = archive.getZdoList();
+		int[] shardOfZdo = new int[zdos.size()];
+		int[] zdoCounts = new int[shards];
+		for(int i = 0; i < shardOfZdo.length; i++) {
+			shardOfZdo[i] = getShard(zdos.get(i).getSector(), shards);
+			zdoCounts[shardOfZdo[i]]++;
+		}
+
+		List<File> files = getShardFiles(file, shards);
+		List<File> previousFiles = findPreviousFiles(file);
+		List<File> temporaryFiles = new ArrayList<>();
+		try {
+			List<OutputStream> outputs = new ArrayList<>();
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+			try {
+				for(int shard = 0; shard < shards; shard++) {
+					File temporaryFile = ValheimSaveWriter.createTemporaryFile(files.get(shard));
+					temporaryFiles.add(temporaryFile);
+					OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+					outputs.add(output);
+					ValheimSaveNdjsonHeader header = new ValheimSaveNdjsonHeader(archive.getMeta(), archive.getModified(), archive.getMyId(), archive.getNextUid(),
+							archive.getZones(), archive.getRandomEvent(), shard, shards, zdoCounts[shard]);
+					output.write(OBJECT_MAPPER.writeValueAsBytes(header));
+					output.write('\n');
+				}
+
+				Deque<Future<byte[][]>> inFlight = new ArrayDeque<>();
+				int next = 0;
+				while(next < zdos.size() || !inFlight.isEmpty()) {
+					while(next < zdos.size() && inFlight.size() < Math.max(1, threads) * 2) {
+						int start = next;
+						int end = Math.min(zdos.size(), start + SLICE_SIZE);
+						inFlight.add(executor.submit(() -> encodeZdos(zdos, shardOfZdo, start, end, shards)));
+						next = end;
+					}
+					byte[][] encoded = awaitEncoded(inFlight.poll());
+					for(int shard = 0; shard < shards; shard++) {
+						outputs.get(shard).write(encoded[shard]);
+					}
+				}
+			} finally {
+				executor.shutdownNow();
+				for(OutputStream output : outputs) {
+					output.close();
+				}
+			}
+			for(int shard = 0; shard < shards; shard++) {
+				ValheimSaveWriter.moveIntoPlace(temporaryFiles.get(shard), files.get(shard));
+			}
+		} catch(IOException | RuntimeException e) {
+			for(File temporaryFile : temporaryFiles) {
+				Files.deleteIfExists(temporaryFile.toPath());
+			}
+			throw e;
+		}
+		for(File previousFile : previousFiles) {
+			if(!files.contains(previousFile)) {
+				Files.deleteIfExists(previousFile.toPath());
+			}
+		}
+		log.info("Wrote {} zdos as NDJSON to {} file(s)", zdos.size(), files.size());
+		return files;
+	}
+
+	private static byte[][] encodeZdos(List<Zdo> zdos, int[] shardOfZdo, int start, int end, int shards) throws IOException {
+		ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[shards];
+		JsonGenerator[] generators = new JsonGenerator[shards];
+		for(int i = start; i < end; i++) {
+			int shard = shardOfZdo[i];
+			if(generators[shard] == null) {
+				outputs[shard] = new ByteArrayOutputStream();
+				generators[shard] = OBJECT_MAPPER.getFactory().createGenerator(outputs[shard]);
+				generators[shard].setRootValueSeparator(null);
+			}
+			generators[shard].writeObject(zdos.get(i));
+			generators[shard].writeRaw('\n');
+		}
+		byte[][] encoded = new byte[shards][];
+		for(int shard = 0; shard < shards; shard++) {
+			if(generators[shard] == null) {
+				encoded[shard] = new byte[0];
+			} else {
+				generators[shard].close();
+				encoded[shard] = outputs[shard].toByteArray();
+			}
+		}
+		return encoded;
+	}
+
+	private static byte[][] awaitEncoded(Future<byte[][]> future) throws IOException {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while encoding zdos");
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("Failed to encode zdos", e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the shard the zdos of a sector are written to
+	 */
+	public static int getShard(Vector2s sector, int shards) {
+		int hash = sector.getX() * 0x9E3779B1 ^ sector.getY() * 0x85EBCA6B;
+		return Math.floorMod(hash ^ (hash >>> 16), shards);
+	}
+
+	/**
+	 * Returns the files the given number of shards of the file are written to
+	 */
+	public static List<File> getShardFiles(File file, int shards) {
+		if(shards == 1) {
+			return List.of(file.getAbsoluteFile());
+		}
+		String baseName = getBaseName(file);
+		List<File> files = new ArrayList<>();
+		for(int shard = 0; shard < shards; shard++) {
+			files.add(new File(file.getAbsoluteFile().getParentFile(), baseName + "-" + shard + EXTENSION));
+		}
+		return files;
+	}
+
+	/**
+	 * Finds the files that were written for the file: the file itself when it exists, otherwise
+	 * its shards, of which the number is read from the header of the first one
+	 */
+	public static List<File> findShardFiles(File file) throws IOException {
+		if(file.exists()) {
+			return List.of(file.getAbsoluteFile());
+		}
+		File firstShard = getShardFiles(file, 2).get(0);
+		if(!firstShard.exists()) {
+			throw new IOException("Neither " + file.getAbsolutePath() + " nor its shards exist");
+		}
+		try(BufferedReader reader = Files.newBufferedReader(firstShard.toPath(), StandardCharsets.UTF_8)) {
+			return getShardFiles(file, readHeader(reader, firstShard).getShards());
+		}
+	}
+
+	/**
+	 * Finds the files of a previous write of the file, in either layout
+	 */
+	private static List<File> findPreviousFiles(File file) {
+		List<File> files = new ArrayList<>();
+		if(file.exists()) {
+			files.add(file.getAbsoluteFile());
+		}
+		File firstShard = getShardFiles(file, 2).get(0);
+		if(firstShard.exists()) {
+			try(BufferedReader reader = Files.newBufferedReader(firstShard.toPath(), StandardCharsets.UTF_8)) {
+				files.addAll(getShardFiles(file, readHeader(reader, firstShard).getShards()));
+			} catch(IOException | RuntimeException e) {
+				log.warn("Failed to read the number of shards from {}, keeping the shards", firstShard.getAbsolutePath(), e);
+			}
+		}
+		return files;
+	}
+
+	private static String getBaseName(File file) {
+		String name = file.getName();
+		return name.toLowerCase().endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+	}
+
+	/**
+	 * Reads the file, or its shards, into an archive
+	 */
+	public static ValheimSaveArchive read(File file) throws IOException {
+		ValheimSaveArchive archive = new ValheimSaveArchive();
+		List<Zdo> zdoList = new ArrayList<>();
+		ValheimSaveNdjsonHeader header = readShards(findShardFiles(file), zdoList::addAll);
+		archive.setMeta(header.getMeta());
+		archive.setModified(header.getModified());
+		archive.setMyId(header.getMyId());
+		archive.setNextUid(header.getNextUid());
+		archive.setZones(header.getZones());
+		archive.setRandomEvent(header.getRandomEvent());
+		archive.setZdoList(zdoList);
+		log.info("Loaded {} zdos", zdoList.size());
+		return archive;
+	}
+
+	/**
+	 * Converts the file, or its shards, to a save file, reading the zdos in batches and encoding
+	 * them on the given number of threads. The zdos are written shard by shard.
+	 *
+	 * @return The number of zdos written
+	 */
+	public static int convert(File file, File outputFile, int threads) throws IOException {
+		List<File> files = findShardFiles(file);
+		ValheimSaveNdjsonHeader header;
+		try(BufferedReader reader = Files.newBufferedReader(files.get(0).toPath(), StandardCharsets.UTF_8)) {
+			header = readHeader(reader, files.get(0));
+		}
+		try(ValheimSaveWriter writer = new ValheimSaveWriter(outputFile, header.getMeta().getNetTime(), header.getMyId(), header.getNextUid())) {
+			readShards(files, batch -> writer.writeZdos(batch, threads));
+			writer.finish(header.getZones(), header.getRandomEvent());
+			return writer.getZdoCount();
+		}
+	}
+
+	private interface ZdoBatchConsumer {
+		void accept(List<Zdo> zdos) throws IOException;
+	}
+
+	/**
+	 * Reads the zdos of the shards in batches, checking that the shards belong together and are complete
+	 *
+	 * @return The header of the first shard
+	 */
+	private static ValheimSaveNdjsonHeader readShards(List<File> files, ZdoBatchConsumer consumer) throws IOException {
+		ValheimSaveNdjsonHeader first = null;
+		for(File file : files) {
+			try(BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				ValheimSaveNdjsonHeader header = readHeader(reader, file);
+				if(first == null) {
+					first = header;
+				} else if(header.getMyId() != first.getMyId() || header.getNextUid() != first.getNextUid() || header.getModified() != first.getModified()) {
+					throw new IllegalStateException("Shard " + file.getAbsolutePath() + " belongs to another world than " + files.get(0).getAbsolutePath());
+				}
+				if(header.getShards() != files.size() || header.getShard() != files.indexOf(file)) {
+					throw new IllegalStateException("Expected shard " + files.indexOf(file) + " of " + files.size() + " in " + file.getAbsolutePath()
+							+ ", found shard " + header.getShard() + " of " + header.getShards());
+				}
+
+				int zdoCount = 0;
+				List<Zdo> batch = new ArrayList<>();
+				String line;
+				while((line = reader.readLine()) != null) {
+					if(line.isBlank()) {
+						continue;
+					}
+					batch.add(ZDO_READER.readValue(line));
+					zdoCount++;
+					if(batch.size() == BATCH_SIZE) {
+						consumer.accept(batch);
+						batch = new ArrayList<>();
+					}
+				}
+				consumer.accept(batch);
+				if(zdoCount != header.getZdoCount()) {
+					throw new IllegalStateException("Expected " + header.getZdoCount() + " zdos in " + file.getAbsolutePath() + ", found " + zdoCount);
+				}
+			}
+		}
+		return first;
+	}
+
+	private static ValheimSaveNdjsonHeader readHeader(BufferedReader reader, File file) throws IOException {
+		String line = reader.readLine();
+		if(line == null) {
+			throw new IllegalStateException("File " + file.getAbsolutePath() + " is empty");
+		}
+		return OBJECT_MAPPER.readValue(line, ValheimSaveNdjsonHeader.class);
+	}
+}
@@ -0,0 +1,32 @@
+package net.kakoen.valheim.save.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import net.kakoen.valheim.save.archive.save.Meta;
+import net.kakoen.valheim.save.archive.save.RandomEvent;
+import net.kakoen.valheim.save.archive.save.Zones;
+
+/**
+ * The first line of every shard written by {@link ValheimSaveNdjson}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValheimSaveNdjsonHeader {
+	
+	private Meta meta;
+	private long modified;
+	
+	private long myId;
+	private long nextUid;
+	
+	private Zones zones;
+	private RandomEvent randomEvent;
+	
+	private int shard;
+	private int shards;
+	private int zdoCount;
+	
+}
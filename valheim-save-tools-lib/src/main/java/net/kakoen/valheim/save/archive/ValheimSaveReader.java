@@ -0,0 +1,322 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Meta;
+import net.kakoen.valheim.save.archive.save.RandomEvent;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.ZdoSource;
+import net.kakoen.valheim.save.archive.save.Zones;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+import net.kakoen.valheim.save.parser.StringPool;
+import net.kakoen.valheim.save.parser.ZPackage;
+
+/**
+ * Reads the *.db save files one zdo at a time, without keeping all zdos in memory.
+ * The zones and random event are stored after the zdos, so they become available
+ * once all zdos have been read (remaining zdos are skipped when they're requested early).
+ */
+@Slf4j
+public class ValheimSaveReader implements Iterator<Zdo>, AutoCloseable {
+
+	private static final int CHUNK_SIZE = 4096;
+
+	private final ZPackage zPackage;
+	private final ValheimSaveReaderHints hints;
+
+	@Getter
+	private final Meta meta;
+	@Getter
+	private final long myId;
+	@Getter
+	private final long nextUid;
+	@Getter
+	private final int zdoCount;
+	private ZdoSource zdoSource;
+
+	private int zdosRead;
+	private int lastZdoStart;
+	private int lastZdoEnd;
+	private Zones zones;
+	private RandomEvent randomEvent;
+
+	public ValheimSaveReader(File file, ValheimSaveReaderHints hints) throws IOException, ValheimArchiveUnsupportedVersionException {
+		this.hints = hints;
+		zPackage = new ZPackage(file, hints.getMapWindowSize() > 0 ? hints.getMapWindowSize() : Integer.MAX_VALUE);
+		if(hints.isInternStrings()) {
+			zPackage.setStringPool(new StringPool());
+		}
+		try {
+			meta = new Meta();
+			meta.setModified(file.lastModified());
+			meta.setWorldVersion(zPackage.readInt32());
+			if(meta.getWorldVersion() > ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION) {
+				if(hints.isFailOnUnsupportedVersion()) {
+					throw new ValheimArchiveUnsupportedVersionException(ValheimSaveArchive.class, "world", meta.getWorldVersion(), ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION);
+				}
+				log.warn("WARNING: world version is {}, the maximum tested world version is {}", meta.getWorldVersion(), ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION);
+			} else {
+				log.info("World version: {}", meta.getWorldVersion());
+			}
+			meta.setNetTime(zPackage.readDouble());
+
+			myId = zPackage.readLong();
+			nextUid = zPackage.readUInt();
+			zdoCount = zPackage.readInt32();
+			zdoSource = new ZdoSource(zPackage, meta.getWorldVersion(), hints);
+		} catch(ValheimArchiveUnsupportedVersionException | RuntimeException e) {
+			zPackage.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return zdosRead < zdoCount;
+	}
+
+	@Override
+	public Zdo next() {
+		try {
+			Zdo zdo = readZdo();
+			if(zdo == null) {
+				throw new NoSuchElementException("All " + zdoCount + " zdos have been read");
+			}
+			return zdo;
+		} catch(ValheimArchiveUnsupportedVersionException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the next zdo, or returns null when all zdos have been read
+	 */
+	public Zdo readZdo() throws ValheimArchiveUnsupportedVersionException {
+		if(!hasNext()) {
+			return null;
+		}
+		zdosRead++;
+		long start = zPackage.getLongPosition();
+		if(zPackage.getReadOnlyBuffer() != zdoSource.getBuffer()) {
+			zdoSource = new ZdoSource(zPackage, meta.getWorldVersion(), hints);
+		}
+		lastZdoStart = zPackage.getBufferPosition();
+		Zdo zdo = new Zdo(zPackage, zdoSource);
+		if(zPackage.getReadOnlyBuffer() != zdoSource.getBuffer()) {
+			// The window on the file moved while reading, read the zdo again from a window starting at it,
+			// so the zdo can refer to its bytes
+			zPackage.setPosition(start);
+			zdoSource = new ZdoSource(zPackage, meta.getWorldVersion(), hints);
+			lastZdoStart = zPackage.getBufferPosition();
+			zdo = new Zdo(zPackage, zdoSource);
+			if(zPackage.getReadOnlyBuffer() != zdoSource.getBuffer()) {
+				throw new IllegalStateException("Zdo at " + start + " is larger than a window of " + hints.getMapWindowSize()
+						+ " bytes, increase mapWindowSize to read it");
+			}
+		}
+		lastZdoEnd = zPackage.getBufferPosition();
+		return zdo;
+	}
+	
+	/**
+	 * Reads all remaining zdos. With more than one thread, the boundaries of the zdos are
+	 * found first by skipping over them, after which chunks of zdos are decoded in parallel.
+	 * The zdos are returned in the order they're stored in either way.
+	 */
+	public Zdo[] readRemainingZdos(int threads) throws ValheimArchiveUnsupportedVersionException {
+		Zdo[] zdos = new Zdo[zdoCount - zdosRead];
+		if(threads <= 1 || zdos.length <= CHUNK_SIZE || zPackage.isWindowed()) {
+			for(int i = 0; i < zdos.length; i++) {
+				zdos[i] = readZdo();
+			}
+			return zdos;
+		}
+
+		int[] chunkOffsets = new int[(zdos.length + CHUNK_SIZE - 1) / CHUNK_SIZE];
+		for(int i = 0; i < zdos.length; i++) {
+			if(i % CHUNK_SIZE == 0) {
+				chunkOffsets[i / CHUNK_SIZE] = zPackage.getBufferPosition();
+			}
+			lastZdoStart = zPackage.getBufferPosition();
+			Zdo.skip(zPackage, meta.getWorldVersion());
+		}
+		lastZdoEnd = zPackage.getBufferPosition();
+		zdosRead = zdoCount;
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new DecodeChunksTask(zdos, chunkOffsets, 0, chunkOffsets.length));
+		} finally {
+			pool.shutdown();
+		}
+		return zdos;
+	}
+
+	/**
+	 * Returns whether the file is mapped in several windows, in which case the zdos can't be
+	 * read at offsets, see {@link #readZdosAt(int[], int)}
+	 */
+	boolean isWindowed() {
+		return zPackage.isWindowed();
+	}
+	
+	/**
+	 * Finds the offsets of the remaining zdos by skipping over them, followed by the offset the
+	 * last zdo ends at. The hashes of the prefabs and property keys of the zdos are passed to the
+	 * consumer. The zdos are read afterwards with {@link #readZdosAt(int[], int)}.
+	 */
+	int[] scanZdoOffsets(IntConsumer hashes) {
+		if(zPackage.isWindowed()) {
+			throw new IllegalStateException("Zdos can't be found by their offsets in a windowed file");
+		}
+		int start = zPackage.getBufferPosition();
+		int[] offsets = new int[zdoCount - zdosRead + 1];
+		for(int i = 0; i < offsets.length - 1; i++) {
+			offsets[i] = zPackage.getBufferPosition();
+			Zdo.skip(zPackage, meta.getWorldVersion(), hashes);
+		}
+		offsets[offsets.length - 1] = zPackage.getBufferPosition();
+		zPackage.setPosition(start);
+		return offsets;
+	}
+	
+	/**
+	 * Reads the remaining zdos at the given offsets, as found by {@link #scanZdoOffsets(IntConsumer)},
+	 * without skipping over them first. Chunks of zdos are decoded in parallel on the given number of threads.
+	 */
+	Zdo[] readZdosAt(int[] offsets, int threads) {
+		Zdo[] zdos = new Zdo[zdoCount - zdosRead];
+		if(zPackage.isWindowed() || offsets.length != zdos.length + 1 || offsets[0] != zPackage.getBufferPosition()) {
+			throw new IllegalStateException("Offsets don't match the " + zdos.length + " zdos starting at " + zPackage.getBufferPosition());
+		}
+		if(zdos.length == 0) {
+			return zdos;
+		}
+		int[] chunkOffsets = new int[(zdos.length + CHUNK_SIZE - 1) / CHUNK_SIZE];
+		for(int chunk = 0; chunk < chunkOffsets.length; chunk++) {
+			chunkOffsets[chunk] = offsets[chunk * CHUNK_SIZE];
+		}
+		lastZdoStart = offsets[zdos.length - 1];
+		lastZdoEnd = offsets[zdos.length];
+		zdosRead = zdoCount;
+		zPackage.setPosition(lastZdoEnd);
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		try {
+			pool.invoke(new DecodeChunksTask(zdos, chunkOffsets, 0, chunkOffsets.length));
+		} finally {
+			pool.shutdown();
+		}
+		return zdos;
+	}
+
+	private class DecodeChunksTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Zdo[] zdos;
+		private final int[] chunkOffsets;
+		private final int fromChunk;
+		private final int toChunk;
+
+		private DecodeChunksTask(Zdo[] zdos, int[] chunkOffsets, int fromChunk, int toChunk) {
+			this.zdos = zdos;
+			this.chunkOffsets = chunkOffsets;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if(toChunk - fromChunk > 1) {
+				int middle = (fromChunk + toChunk) >>> 1;
+				invokeAll(new DecodeChunksTask(zdos, chunkOffsets, fromChunk, middle),
+						new DecodeChunksTask(zdos, chunkOffsets, middle, toChunk));
+				return;
+			}
+			ZPackage chunkReader = zdoSource.newReader();
+			chunkReader.setPosition(chunkOffsets[fromChunk]);
+			int end = Math.min(zdos.length, (fromChunk + 1) * CHUNK_SIZE);
+			for(int i = fromChunk * CHUNK_SIZE; i < end; i++) {
+				zdos[i] = new Zdo(chunkReader, zdoSource);
+			}
+			int expectedEnd = fromChunk + 1 < chunkOffsets.length ? chunkOffsets[fromChunk + 1] : lastZdoEnd;
+			if(chunkReader.getLongPosition() != expectedEnd) {
+				throw new IllegalStateException("Zdos starting at " + chunkOffsets[fromChunk] + " ended at " + chunkReader.getLongPosition() + ", expected " + expectedEnd);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the bytes of the zdo that was read last, as they are stored in the file
+	 */
+	public ByteBuffer getLastZdoBytes() {
+		if(zdosRead == 0) {
+			throw new IllegalStateException("No zdo has been read yet");
+		}
+		return zPackage.slice(lastZdoStart, lastZdoEnd - lastZdoStart);
+	}
+	
+	/**
+	 * Copies the zdo that was read last to the writer, as it is stored in the file
+	 */
+	void copyLastZdo(ValheimSaveWriter writer) throws IOException {
+		if(zdosRead == 0) {
+			throw new IllegalStateException("No zdo has been read yet");
+		}
+		writer.writeRawZdo(zPackage.getReadOnlyBuffer(), lastZdoStart, lastZdoEnd - lastZdoStart);
+	}
+	
+	/**
+	 * Returns whether the zdos are stored in the format they are saved in, which means
+	 * the bytes of unmodified zdos can be copied as-is.
+	 */
+	public boolean isZdoFormatCurrent() {
+		return meta.getWorldVersion() == ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION;
+	}
+
+	/**
+	 * Returns the zones, skipping any zdos that have not been read yet
+	 */
+	public Zones getZones() throws ValheimArchiveUnsupportedVersionException {
+		readTrailer();
+		return zones;
+	}
+
+	/**
+	 * Returns the random event, skipping any zdos that have not been read yet
+	 */
+	public RandomEvent getRandomEvent() throws ValheimArchiveUnsupportedVersionException {
+		readTrailer();
+		return randomEvent;
+	}
+
+	private void readTrailer() throws ValheimArchiveUnsupportedVersionException {
+		if(zones != null) {
+			return;
+		}
+		if(hasNext()) {
+			log.debug("Skipping {} unread zdos", zdoCount - zdosRead);
+			while(readZdo() != null);
+		}
+		zones = new Zones();
+		zones.load(zPackage, meta.getWorldVersion());
+		randomEvent = new RandomEvent(zPackage);
+	}
+
+	@Override
+	public void close() throws IOException {
+		zPackage.close();
+	}
+}
@@ -0,0 +1,232 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.SectorIndex;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.decode.LayeredNameResolver;
+import net.kakoen.valheim.save.decode.NameResolver;
+import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * An index of a *.db save file, kept next to it so the file can be loaded again without going
+ * through it first. The snapshot of world.db is stored in world.db.snapshot, and holds the
+ * offsets of the zdos in the save file, the {@link SectorIndex} of the zdos and the names of
+ * their prefabs and property keys that could be resolved when it was built. The snapshot is
+ * mapped into memory when loading, after which the zdos are decoded in parallel straight from
+ * their offsets.
+ * <p>
+ * When names are resolved, the zdos loaded using a snapshot look up names in its table first,
+ * and in the configured {@link NameResolver} when the table doesn't have them. The table only
+ * holds names that hash to their key, so it can't contradict a dictionary.
+ * <p>
+ * The snapshot records the size and modification time of the save file it was built for, and a
+ * checksum of its contents. When they don't match, or there's no snapshot yet, the save file is
+ * loaded as usual and the snapshot is built again. Files mapped in several windows, see
+ * {@link ValheimSaveReaderHints#getMapWindowSize()}, are always loaded without a snapshot.
+ */
+@Slf4j
+public class ValheimSaveSnapshot {
+
+	public static final String EXTENSION = ".snapshot";
+
+	static final int MAGIC = 0x56534e50; // "VSNP"
+	static final int VERSION = 1;
+
+	/**
+	 * The magic, version, size and modification time of the save file, number of zdos, checksum and length of the body
+	 */
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 8;
+
+	private final int[] zdoOffsets;
+	private final IntBuffer sectorIndex;
+
+	/**
+	 * The names of the prefabs and property keys of the zdos that could be resolved when the snapshot was built
+	 */
+	@Getter
+	private final ReverseHashcodeLookup names;
+
+	private ValheimSaveSnapshot(int[] zdoOffsets, IntBuffer sectorIndex, ReverseHashcodeLookup names) {
+		this.zdoOffsets = zdoOffsets;
+		this.sectorIndex = sectorIndex;
+		this.names = names;
+	}
+
+	public static File getSnapshotFile(File file) {
+		return new File(file.getAbsoluteFile().getParentFile(), file.getName() + EXTENSION);
+	}
+
+	/**
+	 * Loads the save file using its snapshot, building the snapshot first when it's missing or
+	 * out of date. The save file is loaded as usual when the snapshot can't be written.
+	 */
+	public static ValheimSaveArchive load(File file, ValheimSaveReaderHints hints) throws IOException, ValheimArchiveUnsupportedVersionException {
+		long length = file.length();
+		long modified = file.lastModified();
+		ValheimSaveSnapshot snapshot = read(file);
+		try(ValheimSaveReader reader = new ValheimSaveReader(file, hints)) {
+			if(reader.isWindowed()) {
+				log.info("{} is mapped in windows, loading it without a snapshot", file.getAbsolutePath());
+				return toArchive(reader, reader.readRemainingZdos(hints.getThreads()));
+			}
+			if(snapshot != null && snapshot.getZdoCount() == reader.getZdoCount()) {
+				ValheimSaveArchive archive = toArchive(reader, reader.readZdosAt(snapshot.zdoOffsets, hints.getThreads()));
+				archive.setSectorIndex(SectorIndex.read(archive.getZdoList(), snapshot.sectorIndex.duplicate()));
+				if(hints.isResolveNames()) {
+					NameResolver nameResolver = LayeredNameResolver.of(snapshot.names, hints.getNameResolver());
+					archive.getZdoList().forEach(zdo -> zdo.setNameResolver(nameResolver));
+				}
+				log.info("Loaded {} zdos using snapshot {}", archive.getZdoList().size(), getSnapshotFile(file).getAbsolutePath());
+				return archive;
+			}
+
+			Set<Integer> hashes = new HashSet<>();
+			int[] zdoOffsets = reader.scanZdoOffsets(hashes::add);
+			ValheimSaveArchive archive = toArchive(reader, reader.readZdosAt(zdoOffsets, hints.getThreads()));
+			SectorIndex sectorIndex = SectorIndex.build(archive.getZdoList());
+			archive.setSectorIndex(sectorIndex);
+			try {
+				write(getSnapshotFile(file), length, modified, zdoOffsets, sectorIndex, resolveNames(hashes, hints.getNameResolver()));
+			} catch(IOException e) {
+				log.warn("Failed to write snapshot of {}", file.getAbsolutePath(), e);
+			}
+			return archive;
+		}
+	}
+
+	private static ValheimSaveArchive toArchive(ValheimSaveReader reader, Zdo[] zdos) throws ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive();
+		archive.setMeta(reader.getMeta());
+		archive.setModified(reader.getMeta().getModified());
+		archive.setMyId(reader.getMyId());
+		archive.setNextUid(reader.getNextUid());
+		archive.setZdoList(new ArrayList<>(Arrays.asList(zdos)));
+		archive.setZones(reader.getZones());
+		archive.setRandomEvent(reader.getRandomEvent());
+		return archive;
+	}
+
+	private static ReverseHashcodeLookup resolveNames(Set<Integer> hashes, NameResolver nameResolver) {
+		List<String> names = new ArrayList<>();
+		for(int hash : hashes) {
+			if(nameResolver.isKnown(hash)) {
+				names.add(nameResolver.resolve(hash));
+			}
+		}
+		return ReverseHashcodeLookup.fromNames(names);
+	}
+
+	/**
+	 * Reads the snapshot of the save file
+	 *
+	 * @return The snapshot, or null when there's none or it doesn't belong to the save file as it is now
+	 */
+	public static ValheimSaveSnapshot read(File file) throws IOException {
+		File snapshotFile = getSnapshotFile(file);
+		if(!snapshotFile.isFile()) {
+			log.info("No snapshot of {} yet, building it", file.getAbsolutePath());
+			return null;
+		}
+		try(FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while(header.hasRemaining() && channel.read(header) >= 0);
+			header.flip();
+			if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+				log.info("Snapshot {} is of an unknown version, rebuilding it", snapshotFile.getAbsolutePath());
+				return null;
+			}
+			long length = header.getLong();
+			long modified = header.getLong();
+			int zdoCount = header.getInt();
+			int checksum = header.getInt();
+			long bodyLength = header.getLong();
+			if(length != file.length() || modified != file.lastModified()) {
+				log.info("Snapshot {} is out of date, rebuilding it", snapshotFile.getAbsolutePath());
+				return null;
+			}
+			if(bodyLength != channel.size() - HEADER_SIZE) {
+				log.info("Snapshot {} is truncated, rebuilding it", snapshotFile.getAbsolutePath());
+				return null;
+			}
+
+			ByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, bodyLength);
+			CRC32 crc = new CRC32();
+			crc.update(body.duplicate());
+			if((int) crc.getValue() != checksum) {
+				log.info("Snapshot {} is corrupt, rebuilding it", snapshotFile.getAbsolutePath());
+				return null;
+			}
+			IntBuffer ints = body.asIntBuffer();
+			int[] zdoOffsets = new int[zdoCount + 1];
+			ints.get(zdoOffsets);
+			int sectorIndexLength = ints.get();
+			IntBuffer sectorIndex = ints.slice().limit(sectorIndexLength);
+			byte[] names = new byte[(int) bodyLength - 4 * (ints.position() + sectorIndexLength)];
+			body.position(4 * (ints.position() + sectorIndexLength)).get(names);
+			return new ValheimSaveSnapshot(zdoOffsets, sectorIndex, ReverseHashcodeLookup.read(new ByteArrayInputStream(names)));
+		}
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file with a unique name first, which replaces the snapshot
+	 * once it's complete, so concurrent loads of the same save file don't write to the same file
+	 */
+	private static void write(File snapshotFile, long length, long modified, int[] zdoOffsets, SectorIndex sectorIndex, ReverseHashcodeLookup names) throws IOException {
+		ByteArrayOutputStream namesOutput = new ByteArrayOutputStream();
+		names.write(namesOutput);
+		ByteBuffer body = ByteBuffer.allocate(4 * (zdoOffsets.length + 1 + sectorIndex.getIntCount()) + namesOutput.size());
+		IntBuffer ints = body.asIntBuffer();
+		ints.put(zdoOffsets);
+		ints.put(sectorIndex.getIntCount());
+		sectorIndex.write(ints);
+		body.position(4 * ints.position());
+		body.put(namesOutput.toByteArray());
+		body.flip();
+
+		CRC32 crc = new CRC32();
+		crc.update(body.duplicate());
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(modified)
+				.putInt(zdoOffsets.length - 1).putInt((int) crc.getValue()).putLong(body.remaining());
+		header.flip();
+
+		File temporaryFile = ValheimSaveWriter.createTemporaryFile(snapshotFile);
+		try {
+			try(FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.WRITE)) {
+				ByteBuffer[] buffers = {header, body};
+				while(body.hasRemaining()) {
+					channel.write(buffers);
+				}
+			}
+			ValheimSaveWriter.moveIntoPlace(temporaryFile, snapshotFile);
+		} catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(temporaryFile.toPath());
+			throw e;
+		}
+		log.info("Wrote snapshot {}", snapshotFile.getAbsolutePath());
+	}
+
+	public int getZdoCount() {
+		return zdoOffsets.length - 1;
+	}
+}
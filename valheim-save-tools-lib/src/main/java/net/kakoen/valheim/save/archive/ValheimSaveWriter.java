@@ -0,0 +1,262 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.save.RandomEvent;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.Zones;
+import net.kakoen.valheim.save.parser.ZPackage;
+
+/**
+ * Writes *.db save files one zdo at a time. Written data is buffered in a small
+ * segmented package that is written to the file whenever it fills up, so the size
+ * of the world doesn't affect the memory needed to write it.
+ * <p>
+ * Zdos that still refer to the bytes they were read from are copied as-is, and
+ * runs of such zdos that were stored next to each other are copied in one go.
+ * <p>
+ * The file is written next to the destination first, and moved into place when
+ * finished. This keeps the source intact while it is still being read from, which
+ * is the case when overwriting the file that was loaded.
+ */
+@Slf4j
+public class ValheimSaveWriter implements AutoCloseable {
+
+	private static final int SEGMENT_SIZE = 64 * 1024;
+	private static final int SLICE_SIZE = 2048;
+
+	private final File file;
+	private final File temporaryFile;
+	private final FileChannel channel;
+	private final ZPackage pending;
+	private final long zdoCountPosition;
+
+	private ByteBuffer runSource;
+	private int runStart;
+	private int runEnd;
+
+	@Getter
+	private int zdoCount;
+	private boolean finished;
+
+	public ValheimSaveWriter(File file, double netTime, long myId, long nextUid) throws IOException {
+		this.file = file;
+		temporaryFile = createTemporaryFile(file);
+		channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.WRITE);
+		pending = ZPackage.segmented(channel, SEGMENT_SIZE, true);
+		pending.writeInt32(ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION);
+		pending.writeDouble(netTime);
+		pending.writeLong(myId);
+		pending.writeUInt(nextUid);
+		zdoCountPosition = pending.getLongPosition();
+		pending.writeInt32(0); //Patched when finishing
+	}
+
+	public void writeZdo(Zdo zdo) throws IOException {
+		if(zdo.isCopyable()) {
+			writeRawZdo(zdo.getSource().getBuffer(), zdo.getSourceOffset(), zdo.getSourceLength());
+			return;
+		}
+		flushRun();
+		zdo.save(pending);
+		zdoCount++;
+	}
+
+	/**
+	 * Writes the zdos in order. With more than one thread, slices of the zdos are encoded
+	 * into separate packages concurrently, which are written to the file in order as they
+	 * complete. A limited number of slices is in flight at any time.
+	 */
+	public void writeZdos(List<Zdo> zdos, int threads) throws IOException {
+		if(threads <= 1 || zdos.size() <= SLICE_SIZE) {
+			for(Zdo zdo : zdos) {
+				writeZdo(zdo);
+			}
+			return;
+		}
+		flushRun();
+		pending.flush();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Deque<Future<ByteBuffer[]>> inFlight = new ArrayDeque<>();
+			int next = 0;
+			while(next < zdos.size() || !inFlight.isEmpty()) {
+				while(next < zdos.size() && inFlight.size() < threads * 2) {
+					List<Zdo> slice = zdos.subList(next, Math.min(zdos.size(), next + SLICE_SIZE));
+					inFlight.add(executor.submit(() -> encodeZdos(slice)));
+					next += slice.size();
+				}
+				List<ByteBuffer> encoded = new ArrayList<>();
+				do {
+					encoded.addAll(Arrays.asList(awaitEncoded(inFlight.poll())));
+				} while(!inFlight.isEmpty() && inFlight.peek().isDone());
+				writeFully(encoded.toArray(new ByteBuffer[0]));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		zdoCount += zdos.size();
+	}
+
+	private static ByteBuffer[] encodeZdos(List<Zdo> zdos) {
+		ZPackage encoded = ZPackage.segmented(SEGMENT_SIZE, false);
+		for(Zdo zdo : zdos) {
+			zdo.save(encoded);
+		}
+		return encoded.getWrittenSegments();
+	}
+
+	private static ByteBuffer[] awaitEncoded(Future<ByteBuffer[]> future) throws IOException {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while encoding zdos");
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("Failed to encode zdos", e.getCause());
+		}
+	}
+
+	private void writeFully(ByteBuffer[] buffers) throws IOException {
+		long remaining = 0;
+		for(ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		while(remaining > 0) {
+			remaining -= channel.write(buffers);
+		}
+	}
+
+	/**
+	 * Writes a zdo that's already encoded in the current format, for example as read by
+	 * {@link ValheimSaveReader#getLastZdoBytes()}
+	 */
+	public void writeRawZdo(ByteBuffer zdoBytes) throws IOException {
+		writeRawZdo(zdoBytes, zdoBytes.position(), zdoBytes.remaining());
+	}
+
+	/**
+	 * Writes a zdo that's already encoded in the current format, stored in the given range
+	 * of the source buffer
+	 */
+	public void writeRawZdo(ByteBuffer source, int offset, int length) throws IOException {
+		if(source != runSource || offset != runEnd) {
+			flushRun();
+			runSource = source;
+			runStart = offset;
+		}
+		runEnd = offset + length;
+		zdoCount++;
+	}
+
+	/**
+	 * Writes the sections following the zdos and completes the file
+	 */
+	public void finish(Zones zones, RandomEvent randomEvent) throws IOException {
+		if(finished) {
+			throw new IllegalStateException("Save file " + file.getAbsolutePath() + " is already finished");
+		}
+		flushRun();
+		zones.save(pending);
+		randomEvent.save(pending);
+		pending.flush();
+
+		ByteBuffer zdoCountBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, zdoCount);
+		while(zdoCountBytes.hasRemaining()) {
+			channel.write(zdoCountBytes, zdoCountPosition + zdoCountBytes.position());
+		}
+		long size = channel.size();
+		channel.close();
+		moveIntoPlace(temporaryFile, file);
+		finished = true;
+		log.info("Wrote {} zdos, {} bytes to {}", zdoCount, size, file.getAbsolutePath());
+	}
+
+	/**
+	 * Creates an empty file with a unique name next to the given file. Unlike
+	 * {@link File#createTempFile(String, String, File)}, which only gives the owner access,
+	 * the file gets the permissions new files get by default.
+	 */
+	static File createTemporaryFile(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		while(true) {
+			File temporaryFile = new File(directory, file.getName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+			try {
+				Files.createFile(temporaryFile.toPath());
+				return temporaryFile;
+			} catch(FileAlreadyExistsException e) {
+				log.debug("Temporary file {} already exists, trying another name", temporaryFile.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Replaces the file with the temporary file, keeping the permissions of the file it replaces
+	 */
+	static void moveIntoPlace(File temporaryFile, File file) throws IOException {
+		if(file.exists() && Files.getFileStore(file.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+			Files.setPosixFilePermissions(temporaryFile.toPath(), Files.getPosixFilePermissions(file.toPath()));
+		}
+		try {
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private void flushRun() throws IOException {
+		if(runSource == null) {
+			return;
+		}
+		if(runEnd - runStart < SEGMENT_SIZE) {
+			pending.writeBytes(runSource, runStart, runEnd - runStart);
+		} else {
+			pending.flush();
+			ByteBuffer run = runSource.duplicate();
+			run.limit(runEnd);
+			run.position(runStart);
+			while(run.hasRemaining()) {
+				channel.write(run);
+			}
+		}
+		runSource = null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(finished) {
+			return;
+		}
+		log.warn("Save file {} was closed before it was finished, discarding it", file.getAbsolutePath());
+		channel.close();
+		Files.deleteIfExists(temporaryFile.toPath());
+	}
+}
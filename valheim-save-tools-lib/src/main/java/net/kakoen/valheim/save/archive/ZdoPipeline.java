@@ -0,0 +1,93 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.archive.save.Zones;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+/**
+ * Rewrites a *.db save file by streaming its zdos through a chain of stages, straight
+ * into the output file. Only one zdo is held in memory at a time.
+ * <p>
+ * Zdos that only pass through filters are copied byte for byte. Zdos that pass through
+ * a transform are encoded again, because the transform might have changed them, unless
+ * they were read with {@link ValheimSaveReaderHints#isRetainZdoBytes()} and haven't been
+ * marked as modified.
+ */
+@Slf4j
+public class ZdoPipeline {
+
+	private final List<UnaryOperator<Zdo>> stages = new ArrayList<>();
+	private final List<Consumer<Zones>> zonesStages = new ArrayList<>();
+	private boolean transforming;
+
+	/**
+	 * Adds a stage that drops the zdos that don't match the predicate
+	 */
+	public ZdoPipeline filter(Predicate<Zdo> predicate) {
+		stages.add(zdo -> predicate.test(zdo) ? zdo : null);
+		return this;
+	}
+
+	/**
+	 * Adds a stage that may modify or replace zdos. Returning null drops the zdo.
+	 */
+	public ZdoPipeline transform(UnaryOperator<Zdo> transform) {
+		stages.add(transform);
+		transforming = true;
+		return this;
+	}
+
+	/**
+	 * Adds a stage that may modify the zones, which are written after all zdos
+	 */
+	public ZdoPipeline zones(Consumer<Zones> zonesStage) {
+		zonesStages.add(zonesStage);
+		return this;
+	}
+
+	public void run(File inputFile, File outputFile, ValheimSaveReaderHints hints) throws IOException, ValheimArchiveUnsupportedVersionException {
+		try(ValheimSaveReader reader = new ValheimSaveReader(inputFile, hints);
+			ValheimSaveWriter writer = new ValheimSaveWriter(outputFile, reader.getMeta().getNetTime(), reader.getMyId(), reader.getNextUid())) {
+
+			boolean copyBytes = !transforming && reader.isZdoFormatCurrent();
+			Zdo zdo;
+			while((zdo = reader.readZdo()) != null) {
+				Zdo result = apply(zdo);
+				if(result == null) {
+					continue;
+				}
+				if(copyBytes) {
+					reader.copyLastZdo(writer);
+				} else {
+					writer.writeZdo(result);
+				}
+			}
+			log.info("Kept {} of {} zdos", writer.getZdoCount(), reader.getZdoCount());
+
+			Zones zones = reader.getZones();
+			zonesStages.forEach(zonesStage -> zonesStage.accept(zones));
+			writer.finish(zones, reader.getRandomEvent());
+		}
+	}
+
+	private Zdo apply(Zdo zdo) {
+		for(UnaryOperator<Zdo> stage : stages) {
+			zdo = stage.apply(zdo);
+			if(zdo == null) {
+				return null;
+			}
+		}
+		return zdo;
+	}
+}
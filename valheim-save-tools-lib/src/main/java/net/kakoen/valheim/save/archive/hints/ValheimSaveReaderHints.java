@@ -5,13 +5,65 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
+import net.kakoen.valheim.save.decode.LayeredNameResolver;
+import net.kakoen.valheim.save.decode.LearningNameResolver;
+import net.kakoen.valheim.save.decode.NameResolver;
+import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
+
 @EqualsAndHashCode(callSuper = true)
 @Data
 @NoArgsConstructor
 @SuperBuilder
 public class ValheimSaveReaderHints extends ValheimArchiveReaderHints {
 	/**
-	 * Try to resolve prefab names and property keys into their readable names using a reverse StableHashCode lookup
+	 * Try to resolve prefab names and property keys into their readable names using a reverse StableHashCode lookup.
+	 * Zdos are read with the hashes only, names are resolved when they're asked for.
 	 */
 	private boolean resolveNames;
+	
+	/**
+	 * Resolves the names when {@link #resolveNames} is set. Defaults to the dictionary bundled
+	 * with the library, see {@link ReverseHashcodeLookup}. Use {@link LayeredNameResolver} to add
+	 * dictionaries, or {@link LearningNameResolver} to find out which names are missing.
+	 */
+	private NameResolver nameResolver;
+	
+	/**
+	 * Keep referring to the bytes each zdo was read from, so zdos that haven't been modified
+	 * can be saved by copying those bytes instead of encoding them again. Changes made through
+	 * the setters, the maps by hash and the sector, position and rotation are detected, values
+	 * changed in place inside the maps must be marked with
+	 * {@link net.kakoen.valheim.save.archive.save.Zdo#markModified()}.
+	 */
+	private boolean retainZdoBytes;
+	
+	/**
+	 * Only decode the properties of a zdo once they're requested, keeping the bytes they're
+	 * stored in until then. Saves time and memory when only some of the zdos are inspected.
+	 * The zdos can be read from several threads, their properties are decoded once.
+	 */
+	private boolean lazyZdoProperties;
+	
+	/**
+	 * The number of threads used to decode zdos when loading a whole world. Zdos are decoded
+	 * on the calling thread when this is 1 or less.
+	 */
+	private int threads;
+	
+	/**
+	 * The maximum size of the windows the file is mapped in. Files larger than the window
+	 * are mapped one window at a time. Defaults to the largest possible window, just under 2 GB.
+	 */
+	private int mapWindowSize;
+	
+	/**
+	 * Share the strings that are read, such as the string properties of zdos and the names of
+	 * locations, between all places they occur. Saves memory as the same strings are
+	 * repeated throughout a world.
+	 */
+	private boolean internStrings;
+	
+	public NameResolver getNameResolver() {
+		return nameResolver != null ? nameResolver : ReverseHashcodeLookup.INSTANCE;
+	}
 }
@@ -0,0 +1,91 @@
+package net.kakoen.valheim.save.archive.save;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import net.kakoen.valheim.save.decode.StableHashCode;
+
+/**
+ * Groups the zdos of a list by the hash of their prefab, so all instances of a prefab can be
+ * found without going through the whole list or hashing prefab names for every zdo.
+ * <p>
+ * The index refers to the list it was built from, and is not updated when the list or the
+ * prefabs of its zdos are changed, see {@link #isCurrent(List)}.
+ */
+public class PrefabIndex {
+
+	private final ZdoGroups groups;
+
+	private PrefabIndex(ZdoGroups groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * Builds the index in one pass over the zdos, followed by sorting the prefab hashes
+	 */
+	public static PrefabIndex build(List<Zdo> zdoList) {
+		int[] keys = new int[zdoList.size()];
+		for(int i = 0; i < keys.length; i++) {
+			keys[i] = zdoList.get(i).getPrefab();
+		}
+		return new PrefabIndex(ZdoGroups.build(zdoList, keys));
+	}
+
+	/**
+	 * Returns whether the index still holds the zdos of the list, each with its current prefab
+	 */
+	public boolean isCurrent(List<Zdo> zdoList) {
+		return groups.matches(zdoList, Zdo::getPrefab);
+	}
+
+	/**
+	 * Returns the list the index was built from
+	 */
+	public List<Zdo> getZdoList() {
+		return groups.getZdoList();
+	}
+
+	/**
+	 * Returns the number of zdos in the index
+	 */
+	public int size() {
+		return groups.size();
+	}
+
+	/**
+	 * Returns the hashes of the prefabs that have zdos, sorted
+	 */
+	public int[] getPrefabs() {
+		int[] prefabs = new int[groups.getGroupCount()];
+		for(int i = 0; i < prefabs.length; i++) {
+			prefabs[i] = groups.getKey(i);
+		}
+		return prefabs;
+	}
+
+	/**
+	 * Returns the zdos of the prefab with the given hash, in the order of the list
+	 */
+	public List<Zdo> getZdos(int prefab) {
+		return groups.getZdos(groups.find(prefab));
+	}
+
+	public List<Zdo> getZdos(String prefabName) {
+		return getZdos(StableHashCode.getStableHashCode(prefabName));
+	}
+
+	public int getZdoCount(int prefab) {
+		int group = groups.find(prefab);
+		return group < 0 ? 0 : groups.getZdoCount(group);
+	}
+
+	/**
+	 * Calls the consumer with the list index of each zdo of the prefab with the given hash
+	 */
+	public void forEachIndex(int prefab, IntConsumer consumer) {
+		int group = groups.find(prefab);
+		if(group >= 0) {
+			groups.forEachIndex(group, consumer);
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package net.kakoen.valheim.save.archive.save;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import net.kakoen.valheim.save.struct.Vector2s;
+import net.kakoen.valheim.save.struct.Vector3;
+
+/**
+ * Groups the zdos of a list by their sector, so the zdos in a sector or a region can be found
+ * without going through the whole list. The sectors are sorted on x and then y, and the
+ * indices of the zdos of each sector are stored in one contiguous range.
+ * <p>
+ * The index refers to the list it was built from, and is not updated when the list or the
+ * sectors of its zdos are changed, see {@link #isCurrent(List)}.
+ */
+public class SectorIndex {
+
+	/**
+	 * The size of a sector (zone) in world units
+	 */
+	public static final int SECTOR_SIZE = 64;
+
+	private final ZdoGroups groups;
+
+	private SectorIndex(ZdoGroups groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * Builds the index in one pass over the zdos, followed by sorting the sectors
+	 */
+	public static SectorIndex build(List<Zdo> zdoList) {
+		int[] keys = new int[zdoList.size()];
+		for(int i = 0; i < keys.length; i++) {
+			Vector2s sector = zdoList.get(i).getSector();
+			keys[i] = pack(sector.getX(), sector.getY());
+		}
+		return new SectorIndex(ZdoGroups.build(zdoList, keys));
+	}
+
+	/**
+	 * Returns whether the index still holds the zdos of the list, each in its current sector
+	 */
+	public boolean isCurrent(List<Zdo> zdoList) {
+		return groups.matches(zdoList, zdo -> pack(zdo.getSector().getX(), zdo.getSector().getY()));
+	}
+
+	/**
+	 * Reads an index written by {@link #write(IntBuffer)} for the given list, without going
+	 * through the zdos or sorting the sectors
+	 */
+	public static SectorIndex read(List<Zdo> zdoList, IntBuffer buffer) {
+		return new SectorIndex(ZdoGroups.read(zdoList, buffer));
+	}
+
+	/**
+	 * Writes the index, to be read back for the same list by {@link #read(List, IntBuffer)}
+	 */
+	public void write(IntBuffer buffer) {
+		groups.write(buffer);
+	}
+
+	/**
+	 * Returns the number of ints written by {@link #write(IntBuffer)}
+	 */
+	public int getIntCount() {
+		return groups.getIntCount();
+	}
+
+	/**
+	 * Packs a sector in an int that sorts on x and then y
+	 */
+	private static int pack(int x, int y) {
+		return (x << 16) | (y - Short.MIN_VALUE);
+	}
+
+	private static short unpackX(int key) {
+		return (short) (key >> 16);
+	}
+
+	private static short unpackY(int key) {
+		return (short) ((key & 0xffff) + Short.MIN_VALUE);
+	}
+
+	/**
+	 * Returns the sector containing the given world position
+	 */
+	public static Vector2s getSector(Vector3 position) {
+		return new Vector2s(getSectorCoordinate(position.getX()), getSectorCoordinate(position.getZ()));
+	}
+
+	private static short getSectorCoordinate(float coordinate) {
+		return (short) Math.floor((coordinate + SECTOR_SIZE / 2f) / SECTOR_SIZE);
+	}
+
+	/**
+	 * Returns the list the index was built from
+	 */
+	public List<Zdo> getZdoList() {
+		return groups.getZdoList();
+	}
+
+	/**
+	 * Returns the number of zdos in the index
+	 */
+	public int size() {
+		return groups.size();
+	}
+
+	public int getSectorCount() {
+		return groups.getGroupCount();
+	}
+
+	/**
+	 * Returns the sectors that have zdos in them, sorted on x and then y
+	 */
+	public List<Vector2s> getSectors() {
+		List<Vector2s> sectors = new ArrayList<>(groups.getGroupCount());
+		for(int i = 0; i < groups.getGroupCount(); i++) {
+			int key = groups.getKey(i);
+			sectors.add(new Vector2s(unpackX(key), unpackY(key)));
+		}
+		return sectors;
+	}
+
+	/**
+	 * Returns the zdos in the given sector, in the order of the list
+	 */
+	public List<Zdo> getZdos(Vector2s sector) {
+		return getZdos(sector.getX(), sector.getY());
+	}
+
+	public List<Zdo> getZdos(int x, int y) {
+		return groups.getZdos(groups.find(pack(x, y)));
+	}
+
+	public int getZdoCount(Vector2s sector) {
+		int group = groups.find(pack(sector.getX(), sector.getY()));
+		return group < 0 ? 0 : groups.getZdoCount(group);
+	}
+
+	/**
+	 * Returns the zdos in the sectors from (minX, minY) up to and including (maxX, maxY)
+	 */
+	public List<Zdo> getZdosInSectors(int minX, int minY, int maxX, int maxY) {
+		List<Zdo> result = new ArrayList<>();
+		forEachIndexInSectors(minX, minY, maxX, maxY, index -> result.add(groups.getZdoList().get(index)));
+		return result;
+	}
+
+	/**
+	 * Returns the zdos within the given distance of a world position, measured on the ground
+	 * plane like the game does for zones. Only the sectors overlapping the circle are visited.
+	 */
+	public List<Zdo> getZdosInRadius(Vector3 center, float radius) {
+		int minX = getSectorCoordinate(center.getX() - radius);
+		int maxX = getSectorCoordinate(center.getX() + radius);
+		int minY = getSectorCoordinate(center.getZ() - radius);
+		int maxY = getSectorCoordinate(center.getZ() + radius);
+		float radiusSquared = radius * radius;
+		List<Zdo> result = new ArrayList<>();
+		forEachIndexInSectors(minX, minY, maxX, maxY, index -> {
+			Zdo zdo = groups.getZdoList().get(index);
+			float dx = zdo.getPosition().getX() - center.getX();
+			float dz = zdo.getPosition().getZ() - center.getZ();
+			if(dx * dx + dz * dz <= radiusSquared) {
+				result.add(zdo);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Calls the consumer with the list index of each zdo in the given sector
+	 */
+	public void forEachIndexInSector(Vector2s sector, IntConsumer consumer) {
+		forEachIndexInSectors(sector.getX(), sector.getY(), sector.getX(), sector.getY(), consumer);
+	}
+
+	/**
+	 * Calls the consumer with the list index of each zdo in the given sectors, a column of
+	 * sectors at a time
+	 */
+	public void forEachIndexInSectors(int minX, int minY, int maxX, int maxY, IntConsumer consumer) {
+		minX = Math.max(minX, Short.MIN_VALUE);
+		minY = Math.max(minY, Short.MIN_VALUE);
+		maxX = Math.min(maxX, Short.MAX_VALUE);
+		maxY = Math.min(maxY, Short.MAX_VALUE);
+		for(int x = minX; x <= maxX; x++) {
+			int last = pack(x, maxY);
+			for(int sector = groups.findFrom(pack(x, minY)); sector < groups.getGroupCount() && groups.getKey(sector) <= last; sector++) {
+				groups.forEachIndex(sector, consumer);
+			}
+		}
+	}
+}
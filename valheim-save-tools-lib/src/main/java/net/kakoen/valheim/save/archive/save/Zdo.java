@@ -1,11 +1,26 @@
 package net.kakoen.valheim.save.archive.save;
 
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.Nulls;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
-import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
+import net.kakoen.valheim.save.collection.AbstractIntKeyMap;
+import net.kakoen.valheim.save.collection.IntFloatMap;
+import net.kakoen.valheim.save.collection.IntIntMap;
+import net.kakoen.valheim.save.collection.IntLongMap;
+import net.kakoen.valheim.save.collection.IntObjectMap;
+import net.kakoen.valheim.save.decode.NameResolver;
 import net.kakoen.valheim.save.decode.StableHashCode;
 import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
 import net.kakoen.valheim.save.parser.ZPackage;
@@ -13,10 +28,13 @@ import net.kakoen.valheim.save.struct.Quaternion;
 import net.kakoen.valheim.save.struct.Vector2s;
 import net.kakoen.valheim.save.struct.Vector3;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 @Data
 @NoArgsConstructor
@@ -34,25 +52,46 @@ public class Zdo {
     private Vector3 position;
     private Vector3 rotation;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntFloatMap.class)
     private Map<Integer, Float> floats;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, Float> floatsByName;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntObjectMap.class)
     private Map<Integer, Vector3> vector3s;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, Vector3> vector3sByName;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntObjectMap.class)
     private Map<Integer, Quaternion> quats;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, Quaternion> quatsByName;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntIntMap.class)
     private Map<Integer, Integer> ints;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, Integer> intsByName;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntLongMap.class)
     private Map<Integer, Long> longs;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, Long> longsByName;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntObjectMap.class)
     private Map<Integer, String> strings;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, String> stringsByName;
 
+    @JsonSetter(contentNulls = Nulls.FAIL)
+    @JsonDeserialize(as = IntObjectMap.class)
     private Map<Integer, byte[]> byteArrays;
+    @JsonSetter(contentNulls = Nulls.FAIL)
     private Map<String, byte[]> byteArraysByName;
 
     private boolean saveConnections;
@@ -60,6 +99,57 @@ public class Zdo {
     private byte connectionType;
     private int connectionHash;
 
+    /**
+     * The buffer this zdo was read from, when it's copied when saving an unmodified zdo or
+     * when its properties haven't been decoded yet. See {@link ValheimSaveReaderHints#isRetainZdoBytes()}
+     * and {@link ValheimSaveReaderHints#isLazyZdoProperties()}
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ZdoSource source;
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int sourceOffset;
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int sourceLength;
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile boolean propertiesPending;
+    /**
+     * The sum of the change counts of the maps by hash when they were decoded, to detect changes made to them in place
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int decodedChangeCount;
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean modified;
+
+    /**
+     * Resolves the names of the prefab and the properties when they're asked for, or null
+     * when names aren't resolved. Only hashes are kept when reading, names are looked up by
+     * {@link #getPrefabName()}, the getters of the maps by name and the JSON export.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private NameResolver nameResolver;
+
     private static final int FLAG_WRITE_CONNECTIONS = 1;
     private static final int FLAG_WRITE_FLOATS = 2;
     private static final int FLAG_WRITE_VECTOR3S = 4;
@@ -73,6 +163,9 @@ public class Zdo {
     private static final int FLAG_WRITE_TYPE = 1024 | 2048;
     private static final int FLAG_WRITE_ROTATION = 4096;
 
+    private static final int STRING_VALUE = -1;
+    private static final int BYTE_ARRAY_VALUE = -2;
+
     /**
      * @param reader     The package that's being read
      * @param worldVersion The world version of the save
@@ -80,6 +173,33 @@ public class Zdo {
      * @return
      */
     public Zdo(ZPackage reader, int worldVersion, ValheimSaveReaderHints hints) throws ValheimArchiveUnsupportedVersionException {
+        this(reader, new ZdoSource(reader, worldVersion, hints));
+    }
+
+    /**
+     * Reads a zdo from a package that's shared with the other zdos of the same source
+     */
+    public Zdo(ZPackage reader, ZdoSource source) {
+        int offset = reader.getBufferPosition();
+        int flags = readHeader(reader);
+        if (source.isLazy()) {
+            skipProperties(reader, flags, source.getWorldVersion(), 0, false, null);
+            propertiesPending = (flags & 255 & ~FLAG_WRITE_CONNECTIONS) != 0;
+        } else {
+            readProperties(reader, flags, source.getWorldVersion());
+        }
+        nameResolver = source.getNameResolver();
+        if (source.isCopyable() || propertiesPending) {
+            this.source = source;
+            sourceOffset = offset;
+            sourceLength = reader.getBufferPosition() - offset;
+        }
+    }
+
+    /**
+     * Reads everything up to the property sections, returning the flags
+     */
+    private int readHeader(ZPackage reader) {
         int flags = reader.readUShort();
 
         persistent = (flags & 256) != 0;
@@ -88,115 +208,662 @@ public class Zdo {
         sector = reader.readVector2s();
         position = reader.readVector3();
         prefab = reader.readInt32();
-        if (hints.isResolveNames()) {
-            prefabName = ReverseHashcodeLookup.lookup(this.prefab);
-        }
 
         withRotation = (flags & FLAG_WRITE_ROTATION) != 0;
         if (withRotation) {
             rotation = reader.readVector3();
         }
 
-        if ((flags & 255) == 0) {
-            return;
-        }
-
         saveConnections = flagSet(flags, FLAG_WRITE_CONNECTIONS);
         if (saveConnections) {
             connectionType = reader.readByte();
             connectionHash = reader.readInt32();
         }
+        return flags;
+    }
 
+    /**
+     * Reads the property sections into the maps by hash. The keys within a section are unique,
+     * so they're appended without looking them up.
+     */
+    private void readProperties(ZPackage reader, int flags, int worldVersion) {
         if (flagSet(flags, FLAG_WRITE_FLOATS)) {
             int floatCount = reader.readNumItems(worldVersion);
             if (floatCount > 0) {
-                floats = new LinkedHashMap<>();
-                floatsByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
+                IntFloatMap floats = new IntFloatMap(floatCount);
                 for (int i = 0; i < floatCount; i++) {
-                    readValue(reader, ZPackage::readSingle, floatsByName, floats, hints.isResolveNames());
+                    floats.appendFloat(reader.readInt32(), reader.readSingle());
                 }
+                this.floats = floats;
             }
         }
 
         if (flagSet(flags, FLAG_WRITE_VECTOR3S)) {
             int numVector3 = reader.readNumItems(worldVersion);
             if (numVector3 > 0) {
-                vector3s = new LinkedHashMap<>();
-                vector3sByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
-                for (int i = 0; i < numVector3; i++) {
-                    readValue(reader, ZPackage::readVector3, vector3sByName, vector3s, hints.isResolveNames());
-                }
+                vector3s = readValues(reader, numVector3, ZPackage::readVector3);
             }
         }
 
         if (flagSet(flags, FLAG_WRITE_QUATS)) {
             int quatCount = reader.readNumItems(worldVersion);
             if (quatCount > 0) {
-                quats = new LinkedHashMap<>();
-                quatsByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
-                for (int i = 0; i < quatCount; i++) {
-                    readValue(reader, ZPackage::readQuaternion, quatsByName, quats, hints.isResolveNames());
-                }
+                quats = readValues(reader, quatCount, ZPackage::readQuaternion);
             }
         }
 
         if (flagSet(flags, FLAG_WRITE_INTS)) {
             int intCount = reader.readNumItems(worldVersion);
             if (intCount > 0) {
-                ints = new LinkedHashMap<>();
-                intsByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
+                IntIntMap ints = new IntIntMap(intCount);
                 for (int i = 0; i < intCount; i++) {
-                    readValue(reader, ZPackage::readInt32, intsByName, ints, hints.isResolveNames());
+                    ints.appendInt(reader.readInt32(), reader.readInt32());
                 }
+                this.ints = ints;
             }
         }
 
         if (flagSet(flags, FLAG_WRITE_LONGS)) {
             int longCount = reader.readNumItems(worldVersion);
             if (longCount > 0) {
-                longs = new LinkedHashMap<>();
-                longsByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
+                IntLongMap longs = new IntLongMap(longCount);
                 for (int i = 0; i < longCount; i++) {
-                    readValue(reader, ZPackage::readLong, longsByName, longs, hints.isResolveNames());
+                    longs.appendLong(reader.readInt32(), reader.readLong());
                 }
+                this.longs = longs;
             }
         }
 
         if (flagSet(flags, FLAG_WRITE_STRINGS)) {
             int stringCount = reader.readNumItems(worldVersion);
             if (stringCount > 0) {
-                strings = new LinkedHashMap<>();
-                stringsByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
-                for (int i = 0; i < stringCount; i++) {
-                    readValue(reader, ZPackage::readString, stringsByName, strings, hints.isResolveNames());
-                }
+                strings = readValues(reader, stringCount, ZPackage::readString);
             }
         }
 
         if (flagSet(flags, FLAG_WRITE_BYTEARRAYS)) {
             int byteArrayCount = reader.readNumItems(worldVersion);
             if (byteArrayCount > 0) {
-                byteArrays = new LinkedHashMap<>();
-                byteArraysByName = hints.isResolveNames() ? new LinkedHashMap<>() : null;
-                for (int i = 0; i < byteArrayCount; i++) {
-                    readValue(reader, ZPackage::readLengthPrefixedByteArray, byteArraysByName, byteArrays, hints.isResolveNames());
+                byteArrays = readValues(reader, byteArrayCount, ZPackage::readLengthPrefixedByteArray);
+            }
+        }
+        decodedChangeCount = getChangeCount();
+    }
+
+    private int getChangeCount() {
+        return getChangeCount(floats) + getChangeCount(vector3s) + getChangeCount(quats) + getChangeCount(ints)
+                + getChangeCount(longs) + getChangeCount(strings) + getChangeCount(byteArrays);
+    }
+
+    private static int getChangeCount(Map<Integer, ?> valuesByHash) {
+        return valuesByHash instanceof AbstractIntKeyMap ? ((AbstractIntKeyMap<?>) valuesByHash).getChangeCount() : 0;
+    }
+
+    private static <T> IntObjectMap<T> readValues(ZPackage reader, int count, Function<ZPackage, T> valueReader) {
+        IntObjectMap<T> byHash = new IntObjectMap<>(count);
+        for (int i = 0; i < count; i++) {
+            byHash.appendValue(reader.readInt32(), valueReader.apply(reader));
+        }
+        return byHash;
+    }
+
+    /**
+     * Moves the reader past the property sections. When searching, stops at the first property
+     * with the given hash, other than a byte array, and returns whether one was found. The keys
+     * of the properties that are skipped are passed to the consumer, when there is one.
+     */
+    private static boolean skipProperties(ZPackage reader, int flags, int worldVersion, int hash, boolean search, IntConsumer keys) {
+        return (flagSet(flags, FLAG_WRITE_FLOATS) && skipSection(reader, worldVersion, 4, hash, search, keys))
+                || (flagSet(flags, FLAG_WRITE_VECTOR3S) && skipSection(reader, worldVersion, 12, hash, search, keys))
+                || (flagSet(flags, FLAG_WRITE_QUATS) && skipSection(reader, worldVersion, 16, hash, search, keys))
+                || (flagSet(flags, FLAG_WRITE_INTS) && skipSection(reader, worldVersion, 4, hash, search, keys))
+                || (flagSet(flags, FLAG_WRITE_LONGS) && skipSection(reader, worldVersion, 8, hash, search, keys))
+                || (flagSet(flags, FLAG_WRITE_STRINGS) && skipSection(reader, worldVersion, STRING_VALUE, hash, search, keys))
+                || (flagSet(flags, FLAG_WRITE_BYTEARRAYS) && skipSection(reader, worldVersion, BYTE_ARRAY_VALUE, hash, false, keys));
+    }
+
+    private static boolean skipSection(ZPackage reader, int worldVersion, int valueSize, int hash, boolean search, IntConsumer keys) {
+        int count = reader.readNumItems(worldVersion);
+        for (int i = 0; i < count; i++) {
+            int key = reader.readInt32();
+            if (keys != null) {
+                keys.accept(key);
+            }
+            if (key == hash && search) {
+                return true;
+            }
+            if (valueSize == STRING_VALUE) {
+                reader.skip(reader.readStringLength());
+            } else if (valueSize == BYTE_ARRAY_VALUE) {
+                reader.skip(reader.readInt32());
+            } else {
+                reader.skip(valueSize);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Positions a reader on the source at the start of the property sections, returning the flags
+     */
+    private int seekProperties(ZPackage reader) {
+        reader.setPosition(sourceOffset);
+        int flags = reader.readUShort();
+        reader.skip(getHeaderLength(flags));
+        return flags;
+    }
+
+    /**
+     * Returns the length of the sector, position, prefab, rotation and connection that follow the flags
+     */
+    private static int getHeaderLength(int flags) {
+        return 4 + 12 + 4 + (flagSet(flags, FLAG_WRITE_ROTATION) ? 12 : 0) + (flagSet(flags, FLAG_WRITE_CONNECTIONS) ? 5 : 0);
+    }
+
+    /**
+     * Moves the reader past a zdo without decoding it
+     */
+    public static void skip(ZPackage reader, int worldVersion) {
+        int flags = reader.readUShort();
+        reader.skip(getHeaderLength(flags));
+        skipProperties(reader, flags, worldVersion, 0, false, null);
+    }
+
+    /**
+     * Moves the reader past a zdo without decoding it, passing the hash of its prefab and the
+     * keys of its properties to the consumer
+     */
+    public static void skip(ZPackage reader, int worldVersion, IntConsumer hashes) {
+        int flags = reader.readUShort();
+        reader.skip(4 + 12);
+        hashes.accept(reader.readInt32());
+        reader.skip(getHeaderLength(flags) - 4 - 12 - 4);
+        skipProperties(reader, flags, worldVersion, 0, false, hashes);
+    }
+
+    /**
+     * Decodes the properties when they're pending. Several threads can read the same zdo, the
+     * properties are decoded once, and are visible to other threads once propertiesPending is cleared.
+     */
+    private void loadProperties() {
+        if (!propertiesPending) {
+            return;
+        }
+        synchronized (this) {
+            if (!propertiesPending) {
+                return;
+            }
+            ZPackage reader = source.newReader();
+            int flags = seekProperties(reader);
+            readProperties(reader, flags, source.getWorldVersion());
+            if (!source.isCopyable()) {
+                source = null;
+            }
+            propertiesPending = false;
+        }
+    }
+
+    /**
+     * Returns whether this zdo has a property with the given name, not counting byte arrays.
+     * Properties that haven't been decoded yet are searched for without decoding them.
+     */
+    public boolean hasProperty(String name) {
+        int hash = StableHashCode.getStableHashCode(name);
+        if (propertiesPending) {
+            synchronized (this) {
+                if (propertiesPending) {
+                    ZPackage reader = source.newReader();
+                    int flags = seekProperties(reader);
+                    return skipProperties(reader, flags, source.getWorldVersion(), hash, true, null);
                 }
             }
         }
+        return hasProperty(floats, floatsByName, name, hash)
+                || hasProperty(vector3s, vector3sByName, name, hash)
+                || hasProperty(quats, quatsByName, name, hash)
+                || hasProperty(ints, intsByName, name, hash)
+                || hasProperty(longs, longsByName, name, hash)
+                || hasProperty(strings, stringsByName, name, hash);
     }
 
-    private <T> void readValue(ZPackage zPackage, Function<ZPackage, T> valueReader, Map<String, T> byName, Map<Integer, T> byHash, boolean resolveNames) {
-        int hashcode = zPackage.readInt32();
-        T value = valueReader.apply(zPackage);
-        String key = resolveNames ? ReverseHashcodeLookup.lookup(hashcode) : null;
-        if (key != null) {
-            byName.put(key, value);
-        } else {
-            byHash.put(hashcode, value);
+    private static boolean hasProperty(Map<Integer, ?> valuesByHash, Map<String, ?> valuesByName, String name, int hash) {
+        if (valuesByName != null && valuesByName.containsKey(name)) {
+            return true;
+        }
+        if (valuesByHash instanceof AbstractIntKeyMap) {
+            return ((AbstractIntKeyMap<?>) valuesByHash).containsKey(hash);
+        }
+        return valuesByHash != null && valuesByHash.containsKey(hash);
+    }
+
+    /**
+     * Marks this zdo as modified, so it's encoded again when saving. Setters do this
+     * automatically, and changes made in place to the maps by hash or to the sector, position
+     * and rotation are detected when saving. Values changed in place inside the maps, such as
+     * vectors and byte arrays, are not, call this after changing them.
+     */
+    public void markModified() {
+        loadProperties();
+        modified = true;
+        source = null;
+    }
+
+    public Map<Integer, Float> getFloats() {
+        loadProperties();
+        return floats;
+    }
+
+    /**
+     * Returns the properties by name. When names are resolved, this is a copy holding the
+     * properties with a known name, which can't be modified. Set properties by name with
+     * {@link #setFloatsByName(Map)}, which replaces the properties by hash with the same name.
+     */
+    public Map<String, Float> getFloatsByName() {
+        loadProperties();
+        return withNames(floats, floatsByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved.
+     * This is the map by hash itself when no properties were set by name.
+     */
+    @JsonIgnore
+    public Map<Integer, Float> getAllFloats() {
+        loadProperties();
+        return withHashes(floats, floatsByName);
+    }
+
+    @JsonGetter("floats")
+    private Map<Integer, Float> getUnnamedFloats() {
+        loadProperties();
+        return withoutNames(floats);
+    }
+
+    public Map<Integer, Vector3> getVector3s() {
+        loadProperties();
+        return vector3s;
+    }
+
+    public Map<String, Vector3> getVector3sByName() {
+        loadProperties();
+        return withNames(vector3s, vector3sByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved
+     */
+    @JsonIgnore
+    public Map<Integer, Vector3> getAllVector3s() {
+        loadProperties();
+        return withHashes(vector3s, vector3sByName);
+    }
+
+    @JsonGetter("vector3s")
+    private Map<Integer, Vector3> getUnnamedVector3s() {
+        loadProperties();
+        return withoutNames(vector3s);
+    }
+
+    public Map<Integer, Quaternion> getQuats() {
+        loadProperties();
+        return quats;
+    }
+
+    public Map<String, Quaternion> getQuatsByName() {
+        loadProperties();
+        return withNames(quats, quatsByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved
+     */
+    @JsonIgnore
+    public Map<Integer, Quaternion> getAllQuats() {
+        loadProperties();
+        return withHashes(quats, quatsByName);
+    }
+
+    @JsonGetter("quats")
+    private Map<Integer, Quaternion> getUnnamedQuats() {
+        loadProperties();
+        return withoutNames(quats);
+    }
+
+    public Map<Integer, Integer> getInts() {
+        loadProperties();
+        return ints;
+    }
+
+    public Map<String, Integer> getIntsByName() {
+        loadProperties();
+        return withNames(ints, intsByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved
+     */
+    @JsonIgnore
+    public Map<Integer, Integer> getAllInts() {
+        loadProperties();
+        return withHashes(ints, intsByName);
+    }
+
+    @JsonGetter("ints")
+    private Map<Integer, Integer> getUnnamedInts() {
+        loadProperties();
+        return withoutNames(ints);
+    }
+
+    public Map<Integer, Long> getLongs() {
+        loadProperties();
+        return longs;
+    }
+
+    public Map<String, Long> getLongsByName() {
+        loadProperties();
+        return withNames(longs, longsByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved
+     */
+    @JsonIgnore
+    public Map<Integer, Long> getAllLongs() {
+        loadProperties();
+        return withHashes(longs, longsByName);
+    }
+
+    @JsonGetter("longs")
+    private Map<Integer, Long> getUnnamedLongs() {
+        loadProperties();
+        return withoutNames(longs);
+    }
+
+    public Map<Integer, String> getStrings() {
+        loadProperties();
+        return strings;
+    }
+
+    public Map<String, String> getStringsByName() {
+        loadProperties();
+        return withNames(strings, stringsByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved
+     */
+    @JsonIgnore
+    public Map<Integer, String> getAllStrings() {
+        loadProperties();
+        return withHashes(strings, stringsByName);
+    }
+
+    @JsonGetter("strings")
+    private Map<Integer, String> getUnnamedStrings() {
+        loadProperties();
+        return withoutNames(strings);
+    }
+
+    public Map<Integer, byte[]> getByteArrays() {
+        loadProperties();
+        return byteArrays;
+    }
+
+    public Map<String, byte[]> getByteArraysByName() {
+        loadProperties();
+        return withNames(byteArrays, byteArraysByName);
+    }
+
+    /**
+     * Returns the properties by hash together with the properties set by name, keyed by hash, as they're saved
+     */
+    @JsonIgnore
+    public Map<Integer, byte[]> getAllByteArrays() {
+        loadProperties();
+        return withHashes(byteArrays, byteArraysByName);
+    }
+
+    @JsonGetter("byteArrays")
+    private Map<Integer, byte[]> getUnnamedByteArrays() {
+        loadProperties();
+        return withoutNames(byteArrays);
+    }
+
+    /**
+     * Returns the properties that were set by name, followed by the properties by hash with a name
+     * known to the resolver, as a copy that can't be modified
+     */
+    private <T> Map<String, T> withNames(Map<Integer, T> valuesByHash, Map<String, T> valuesByName) {
+        if (nameResolver == null || valuesByHash == null) {
+            return valuesByName;
+        }
+        Map<String, T> result = valuesByName != null ? new LinkedHashMap<>(valuesByName) : new LinkedHashMap<>();
+        valuesByHash.forEach((hash, value) -> {
+            String name = nameResolver.resolve(hash);
+            if (name != null) {
+                result.put(name, value);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Removes the properties by hash that are also set by name, so no property is saved twice
+     */
+    private static void removeNamed(Map<Integer, ?> valuesByHash, Map<String, ?> valuesByName) {
+        if (valuesByHash != null && valuesByName != null) {
+            valuesByName.keySet().forEach(name -> valuesByHash.remove(StableHashCode.getStableHashCode(name)));
         }
     }
 
+    /**
+     * Returns the properties by hash, followed by the properties set by name keyed by their hash
+     */
+    private static <T> Map<Integer, T> withHashes(Map<Integer, T> valuesByHash, Map<String, T> valuesByName) {
+        if (valuesByName == null || valuesByName.isEmpty()) {
+            return valuesByHash;
+        }
+        Map<Integer, T> result = valuesByHash != null ? new LinkedHashMap<>(valuesByHash) : new LinkedHashMap<>();
+        valuesByName.forEach((name, value) -> result.put(StableHashCode.getStableHashCode(name), value));
+        return result;
+    }
+
+    /**
+     * Returns the properties by hash that aren't exported by name, see {@link #withNames(Map, Map)}
+     */
+    private <T> Map<Integer, T> withoutNames(Map<Integer, T> valuesByHash) {
+        if (nameResolver == null || valuesByHash == null) {
+            return valuesByHash;
+        }
+        Map<Integer, T> result = new LinkedHashMap<>();
+        valuesByHash.forEach((hash, value) -> {
+            if (!nameResolver.isKnown(hash)) {
+                result.put(hash, value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the name of the prefab, resolved from its hash unless it was set
+     */
+    public String getPrefabName() {
+        if (prefabName != null || nameResolver == null) {
+            return prefabName;
+        }
+        return nameResolver.resolve(prefab);
+    }
+
+    public void setPersistent(boolean persistent) {
+        markModified();
+        this.persistent = persistent;
+    }
+
+    public void setType(byte type) {
+        markModified();
+        this.type = type;
+    }
+
+    public void setDistant(boolean distant) {
+        markModified();
+        this.distant = distant;
+    }
+
+    public void setPrefab(int prefab) {
+        markModified();
+        this.prefab = prefab;
+    }
+
+    public void setSector(Vector2s sector) {
+        markModified();
+        this.sector = sector;
+    }
+
+    public void setPosition(Vector3 position) {
+        markModified();
+        this.position = position;
+    }
+
+    public void setRotation(Vector3 rotation) {
+        markModified();
+        this.rotation = rotation;
+    }
+
+    public void setFloats(Map<Integer, Float> floats) {
+        markModified();
+        this.floats = floats;
+    }
+
+    public void setFloatsByName(Map<String, Float> floatsByName) {
+        markModified();
+        removeNamed(floats, floatsByName);
+        this.floatsByName = floatsByName;
+    }
+
+    public void setVector3s(Map<Integer, Vector3> vector3s) {
+        markModified();
+        this.vector3s = vector3s;
+    }
+
+    public void setVector3sByName(Map<String, Vector3> vector3sByName) {
+        markModified();
+        removeNamed(vector3s, vector3sByName);
+        this.vector3sByName = vector3sByName;
+    }
+
+    public void setQuats(Map<Integer, Quaternion> quats) {
+        markModified();
+        this.quats = quats;
+    }
+
+    public void setQuatsByName(Map<String, Quaternion> quatsByName) {
+        markModified();
+        removeNamed(quats, quatsByName);
+        this.quatsByName = quatsByName;
+    }
+
+    public void setInts(Map<Integer, Integer> ints) {
+        markModified();
+        this.ints = ints;
+    }
+
+    public void setIntsByName(Map<String, Integer> intsByName) {
+        markModified();
+        removeNamed(ints, intsByName);
+        this.intsByName = intsByName;
+    }
+
+    public void setLongs(Map<Integer, Long> longs) {
+        markModified();
+        this.longs = longs;
+    }
+
+    public void setLongsByName(Map<String, Long> longsByName) {
+        markModified();
+        removeNamed(longs, longsByName);
+        this.longsByName = longsByName;
+    }
+
+    public void setStrings(Map<Integer, String> strings) {
+        markModified();
+        this.strings = strings;
+    }
+
+    public void setStringsByName(Map<String, String> stringsByName) {
+        markModified();
+        removeNamed(strings, stringsByName);
+        this.stringsByName = stringsByName;
+    }
+
+    public void setByteArrays(Map<Integer, byte[]> byteArrays) {
+        markModified();
+        this.byteArrays = byteArrays;
+    }
+
+    public void setByteArraysByName(Map<String, byte[]> byteArraysByName) {
+        markModified();
+        removeNamed(byteArrays, byteArraysByName);
+        this.byteArraysByName = byteArraysByName;
+    }
+
+    public void setSaveConnections(boolean saveConnections) {
+        markModified();
+        this.saveConnections = saveConnections;
+    }
+
+    public void setWithRotation(boolean withRotation) {
+        markModified();
+        this.withRotation = withRotation;
+    }
+
+    public void setConnectionType(byte connectionType) {
+        markModified();
+        this.connectionType = connectionType;
+    }
+
+    public void setConnectionHash(int connectionHash) {
+        markModified();
+        this.connectionHash = connectionHash;
+    }
+
+    /**
+     * Returns whether the bytes this zdo was read from can be saved as they are, which is the
+     * case when they're retained and the zdo hasn't been changed since
+     */
+    @JsonIgnore
+    public boolean isCopyable() {
+        return source != null && source.isCopyable() && getChangeCount() == decodedChangeCount && isHeaderUnchanged();
+    }
+
+    /**
+     * Compares the sector, position and rotation to the bytes they were read from, as the
+     * vectors can be changed in place
+     */
+    private boolean isHeaderUnchanged() {
+        ByteBuffer buffer = source.getBuffer();
+        int flags = buffer.getShort(sourceOffset) & 0xffff;
+        if (flagSet(flags, FLAG_WRITE_ROTATION) != withRotation) {
+            return false;
+        }
+        int offset = sourceOffset + 2;
+        return buffer.getShort(offset) == sector.getX()
+                && buffer.getShort(offset + 2) == sector.getY()
+                && isVectorUnchanged(buffer, offset + 4, position)
+                && (!withRotation || isVectorUnchanged(buffer, offset + 4 + 12 + 4, rotation));
+    }
+
+    private static boolean isVectorUnchanged(ByteBuffer buffer, int offset, Vector3 vector) {
+        return buffer.getInt(offset) == Float.floatToRawIntBits(vector.getX())
+                && buffer.getInt(offset + 4) == Float.floatToRawIntBits(vector.getY())
+                && buffer.getInt(offset + 8) == Float.floatToRawIntBits(vector.getZ());
+    }
+
     public void save(ZPackage writer) {
+        if (isCopyable()) {
+            writer.writeBytes(source.getBuffer(), sourceOffset, sourceLength);
+            return;
+        }
+        loadProperties();
 
         int flags =
                 (saveConnections ? FLAG_WRITE_CONNECTIONS : 0)
@@ -253,7 +920,7 @@ public class Zdo {
         return flag;
     }
 
-    private boolean flagSet(int flags, int flag) {
+    private static boolean flagSet(int flags, int flag) {
         return (flags & flag) != 0;
     }
 
@@ -0,0 +1,183 @@
+package net.kakoen.valheim.save.archive.save;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * The indices of the zdos of a list, grouped by an int key. The keys are sorted, and the
+ * indices of the zdos with the same key are stored in one contiguous range, in the order of
+ * the list. Used by {@link SectorIndex} and {@link PrefabIndex}.
+ */
+final class ZdoGroups {
+
+	private final List<Zdo> zdoList;
+	private final int[] keys;
+	private final int[] rangeStarts;
+	private final int[] zdoIndices;
+
+	private ZdoGroups(List<Zdo> zdoList, int[] keys, int[] rangeStarts, int[] zdoIndices) {
+		this.zdoList = zdoList;
+		this.keys = keys;
+		this.rangeStarts = rangeStarts;
+		this.zdoIndices = zdoIndices;
+	}
+
+	/**
+	 * Groups the zdos of the list, given the key of each zdo
+	 */
+	static ZdoGroups build(List<Zdo> zdoList, int[] keyOfZdo) {
+		int[] sortedKeys = keyOfZdo.clone();
+		Arrays.sort(sortedKeys);
+		int groupCount = 0;
+		for(int i = 0; i < sortedKeys.length; i++) {
+			if(i == 0 || sortedKeys[i] != sortedKeys[i - 1]) {
+				sortedKeys[groupCount++] = sortedKeys[i];
+			}
+		}
+		int[] keys = Arrays.copyOf(sortedKeys, groupCount);
+
+		int[] rangeStarts = new int[groupCount + 1];
+		int[] groupOfZdo = new int[keyOfZdo.length];
+		for(int i = 0; i < keyOfZdo.length; i++) {
+			groupOfZdo[i] = Arrays.binarySearch(keys, keyOfZdo[i]);
+			rangeStarts[groupOfZdo[i] + 1]++;
+		}
+		for(int i = 0; i < groupCount; i++) {
+			rangeStarts[i + 1] += rangeStarts[i];
+		}
+		int[] next = Arrays.copyOf(rangeStarts, groupCount);
+		int[] zdoIndices = new int[keyOfZdo.length];
+		for(int i = 0; i < keyOfZdo.length; i++) {
+			zdoIndices[next[groupOfZdo[i]]++] = i;
+		}
+		return new ZdoGroups(zdoList, keys, rangeStarts, zdoIndices);
+	}
+
+	/**
+	 * Reads groups written by {@link #write(IntBuffer)} for the given list
+	 */
+	static ZdoGroups read(List<Zdo> zdoList, IntBuffer buffer) {
+		int[] keys = new int[buffer.get()];
+		int[] rangeStarts = new int[keys.length + 1];
+		int[] zdoIndices = new int[buffer.get()];
+		if(zdoIndices.length != zdoList.size()) {
+			throw new IllegalStateException("Groups were written for " + zdoIndices.length + " zdos, the list has " + zdoList.size());
+		}
+		buffer.get(keys);
+		buffer.get(rangeStarts);
+		buffer.get(zdoIndices);
+		return new ZdoGroups(zdoList, keys, rangeStarts, zdoIndices);
+	}
+
+	/**
+	 * Writes the groups: the number of groups and zdos, followed by the keys, the starts of the ranges and the indices
+	 */
+	void write(IntBuffer buffer) {
+		buffer.put(keys.length);
+		buffer.put(zdoIndices.length);
+		buffer.put(keys);
+		buffer.put(rangeStarts);
+		buffer.put(zdoIndices);
+	}
+
+	/**
+	 * Returns the number of ints written by {@link #write(IntBuffer)}
+	 */
+	int getIntCount() {
+		return 2 + keys.length + rangeStarts.length + zdoIndices.length;
+	}
+
+	/**
+	 * Returns whether the groups still belong to the list: the same list with the same size,
+	 * and every zdo has the key of the group it's in. Goes through all zdos once.
+	 */
+	boolean matches(List<Zdo> zdoList, ToIntFunction<Zdo> keyOfZdo) {
+		if(zdoList != this.zdoList || zdoList.size() != zdoIndices.length) {
+			return false;
+		}
+		for(int group = 0; group < keys.length; group++) {
+			for(int i = rangeStarts[group]; i < rangeStarts[group + 1]; i++) {
+				if(zdoIndices[i] >= zdoIndices.length || keyOfZdo.applyAsInt(zdoList.get(zdoIndices[i])) != keys[group]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	List<Zdo> getZdoList() {
+		return zdoList;
+	}
+
+	int size() {
+		return zdoIndices.length;
+	}
+
+	int getGroupCount() {
+		return keys.length;
+	}
+
+	int getKey(int group) {
+		return keys[group];
+	}
+
+	/**
+	 * Returns the group with the given key, or a negative number when there's none, see {@link Arrays#binarySearch(int[], int)}
+	 */
+	int find(int key) {
+		return Arrays.binarySearch(keys, key);
+	}
+
+	/**
+	 * Returns the first group with a key that's not less than the given key
+	 */
+	int findFrom(int key) {
+		int group = find(key);
+		return group < 0 ? -group - 1 : group;
+	}
+
+	int getZdoCount(int group) {
+		return rangeStarts[group + 1] - rangeStarts[group];
+	}
+
+	List<Zdo> getZdos(int group) {
+		if(group < 0) {
+			return List.of();
+		}
+		return new ZdoRange(rangeStarts[group], rangeStarts[group + 1]);
+	}
+
+	void forEachIndex(int group, IntConsumer consumer) {
+		for(int i = rangeStarts[group]; i < rangeStarts[group + 1]; i++) {
+			consumer.accept(zdoIndices[i]);
+		}
+	}
+
+	private class ZdoRange extends AbstractList<Zdo> {
+
+		private final int start;
+		private final int end;
+
+		private ZdoRange(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public Zdo get(int index) {
+			if(index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (end - start));
+			}
+			return zdoList.get(zdoIndices[start + index]);
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package net.kakoen.valheim.save.archive.save;
+
+import java.nio.ByteBuffer;
+
+import lombok.Getter;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.decode.NameResolver;
+import net.kakoen.valheim.save.parser.StringPool;
+import net.kakoen.valheim.save.parser.ZPackage;
+
+/**
+ * The buffer a number of zdos were read from, shared by those zdos so they can refer
+ * back to their bytes after reading.
+ */
+@Getter
+public class ZdoSource {
+
+	private final ByteBuffer buffer;
+	private final int worldVersion;
+
+	/**
+	 * Resolves the names of the zdos read from the buffer on demand, or null when names aren't resolved
+	 */
+	private final NameResolver nameResolver;
+
+	/**
+	 * Whether unmodified zdos can be saved by copying their bytes, see {@link ValheimSaveReaderHints#isRetainZdoBytes()}
+	 */
+	private final boolean copyable;
+
+	/**
+	 * Whether zdo properties are decoded on demand, see {@link ValheimSaveReaderHints#isLazyZdoProperties()}
+	 */
+	private final boolean lazy;
+
+	private final StringPool stringPool;
+
+	public ZdoSource(ZPackage reader, int worldVersion, ValheimSaveReaderHints hints) {
+		this.buffer = reader.getReadOnlyBuffer();
+		this.worldVersion = worldVersion;
+		this.nameResolver = hints.isResolveNames() ? hints.getNameResolver() : null;
+		this.copyable = buffer != null && hints.isRetainZdoBytes() && worldVersion == ValheimSaveArchive.MAX_SUPPORTED_WORLD_VERSION;
+		this.lazy = buffer != null && hints.isLazyZdoProperties();
+		this.stringPool = reader.getStringPool();
+	}
+
+	public boolean isResolveNames() {
+		return nameResolver != null;
+	}
+
+	/**
+	 * Returns a new package reading from the buffer, independent of other readers
+	 */
+	public ZPackage newReader() {
+		ZPackage reader = new ZPackage(buffer);
+		reader.setStringPool(stringPool);
+		return reader;
+	}
+}
@@ -0,0 +1,295 @@
+package net.kakoen.valheim.save.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map with int keys that keeps its entries in insertion order, in plain arrays instead
+ * of an entry object per mapping. Keys are looked up by scanning them, which beats hashing
+ * for the handful of properties a zdo typically has.
+ * <p>
+ * Subclasses store the values, unboxed where possible.
+ */
+public abstract class AbstractIntKeyMap<V> extends AbstractMap<Integer, V> {
+
+	private static final int[] NO_KEYS = new int[0];
+	private static final int MIN_CAPACITY = 4;
+
+	private int[] keys;
+	private int size;
+	private int modCount;
+	private int changeCount;
+	private EntrySet entrySet;
+
+	protected AbstractIntKeyMap(int capacity) {
+		keys = capacity > 0 ? new int[capacity] : NO_KEYS;
+	}
+
+	protected abstract V valueAt(int index);
+
+	protected abstract void setValueAt(int index, V value);
+
+	protected abstract void resizeValues(int capacity);
+
+	/**
+	 * Moves count values starting at from to the index to, as in {@link System#arraycopy}
+	 */
+	protected abstract void moveValues(int from, int to, int count);
+
+	/**
+	 * Clears the value at the index after it has been removed, so it can be garbage collected
+	 */
+	protected void clearValueAt(int index) {
+	}
+
+	/**
+	 * Returns whether null values can be stored, which unboxed values can't
+	 */
+	protected boolean allowsNullValues() {
+		return true;
+	}
+
+	private void checkValue(int key, V value) {
+		if(value == null && !allowsNullValues()) {
+			throw new IllegalArgumentException("Value of key " + key + " is null, which " + getClass().getSimpleName() + " can't hold");
+		}
+	}
+
+	public int keyAt(int index) {
+		Objects.checkIndex(index, size);
+		return keys[index];
+	}
+
+	/**
+	 * Returns the index of the key in insertion order, or -1 when it isn't mapped
+	 */
+	public int indexOf(int key) {
+		int[] keys = this.keys;
+		for(int i = 0; i < size; i++) {
+			if(keys[i] == key) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns the index of the key, appending it when it isn't mapped yet. The value at
+	 * an appended index must be set by the caller.
+	 */
+	protected int indexFor(int key) {
+		changeCount++;
+		int index = indexOf(key);
+		return index >= 0 ? index : append(key);
+	}
+
+	/**
+	 * Appends the key without checking whether it's mapped already, returning its index. The
+	 * value at the index must be set by the caller.
+	 */
+	protected int append(int key) {
+		if(size == keys.length) {
+			int capacity = Math.max(MIN_CAPACITY, size * 2);
+			keys = Arrays.copyOf(keys, capacity);
+			resizeValues(capacity);
+		}
+		keys[size] = key;
+		modCount++;
+		changeCount++;
+		return size++;
+	}
+
+	public void removeAt(int index) {
+		Objects.checkIndex(index, size);
+		int moved = size - index - 1;
+		if(moved > 0) {
+			System.arraycopy(keys, index + 1, keys, index, moved);
+			moveValues(index + 1, index, moved);
+		}
+		size--;
+		clearValueAt(size);
+		modCount++;
+		changeCount++;
+	}
+
+	/**
+	 * Returns the number of changes made to the map, including values replaced for keys
+	 * that were mapped already, so changes can be detected by comparing it
+	 */
+	public int getChangeCount() {
+		return changeCount;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof Integer && containsKey((int) (Integer) key);
+	}
+
+	@Override
+	public V get(Object key) {
+		int index = key instanceof Integer ? indexOf((Integer) key) : -1;
+		return index >= 0 ? valueAt(index) : null;
+	}
+
+	@Override
+	public V put(Integer key, V value) {
+		checkValue(key, value);
+		changeCount++;
+		int index = indexOf(key);
+		if(index < 0) {
+			setValueAt(append(key), value);
+			return null;
+		}
+		V previous = valueAt(index);
+		setValueAt(index, value);
+		return previous;
+	}
+
+	@Override
+	public V remove(Object key) {
+		int index = key instanceof Integer ? indexOf((Integer) key) : -1;
+		if(index < 0) {
+			return null;
+		}
+		V previous = valueAt(index);
+		removeAt(index);
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		for(int i = 0; i < size; i++) {
+			clearValueAt(i);
+		}
+		size = 0;
+		modCount++;
+		changeCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, V>> entrySet() {
+		if(entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<Integer, V>> {
+
+		@Override
+		public Iterator<Map.Entry<Integer, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			AbstractIntKeyMap.this.clear();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Integer, V>> {
+
+		private int next;
+		private int last = -1;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<Integer, V> next() {
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if(next >= size) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return new IndexEntry(last);
+		}
+
+		@Override
+		public void remove() {
+			if(last < 0) {
+				throw new IllegalStateException();
+			}
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	private class IndexEntry implements Map.Entry<Integer, V> {
+
+		private final int index;
+
+		private IndexEntry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Integer getKey() {
+			return keys[index];
+		}
+
+		@Override
+		public V getValue() {
+			return valueAt(index);
+		}
+
+		@Override
+		public V setValue(V value) {
+			checkValue(keys[index], value);
+			changeCount++;
+			V previous = valueAt(index);
+			setValueAt(index, value);
+			return previous;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+			return getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return Integer.hashCode(keys[index]) ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return keys[index] + "=" + getValue();
+		}
+	}
+}
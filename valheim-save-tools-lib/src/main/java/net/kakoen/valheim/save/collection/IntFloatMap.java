@@ -0,0 +1,72 @@
+package net.kakoen.valheim.save.collection;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An insertion ordered map from int keys to unboxed float values
+ */
+public class IntFloatMap extends AbstractIntKeyMap<Float> {
+
+	private static final float[] NO_VALUES = new float[0];
+
+	private float[] values;
+
+	public IntFloatMap() {
+		this(0);
+	}
+
+	public IntFloatMap(int capacity) {
+		super(capacity);
+		values = capacity > 0 ? new float[capacity] : NO_VALUES;
+	}
+
+	public float getFloat(int key, float defaultValue) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : defaultValue;
+	}
+
+	public void putFloat(int key, float value) {
+		int index = indexFor(key);
+		values[index] = value;
+	}
+
+	/**
+	 * Adds a mapping for a key that isn't mapped yet, without looking the key up, as when
+	 * decoding a property section in which the keys are unique
+	 */
+	public void appendFloat(int key, float value) {
+		int index = append(key);
+		values[index] = value;
+	}
+
+	public float floatAt(int index) {
+		Objects.checkIndex(index, size());
+		return values[index];
+	}
+
+	@Override
+	protected Float valueAt(int index) {
+		return values[index];
+	}
+
+	@Override
+	protected void setValueAt(int index, Float value) {
+		values[index] = value;
+	}
+
+	@Override
+	protected void resizeValues(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void moveValues(int from, int to, int count) {
+		System.arraycopy(values, from, values, to, count);
+	}
+
+	@Override
+	protected boolean allowsNullValues() {
+		return false;
+	}
+}
@@ -0,0 +1,72 @@
+package net.kakoen.valheim.save.collection;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An insertion ordered map from int keys to unboxed int values
+ */
+public class IntIntMap extends AbstractIntKeyMap<Integer> {
+
+	private static final int[] NO_VALUES = new int[0];
+
+	private int[] values;
+
+	public IntIntMap() {
+		this(0);
+	}
+
+	public IntIntMap(int capacity) {
+		super(capacity);
+		values = capacity > 0 ? new int[capacity] : NO_VALUES;
+	}
+
+	public int getInt(int key, int defaultValue) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : defaultValue;
+	}
+
+	public void putInt(int key, int value) {
+		int index = indexFor(key);
+		values[index] = value;
+	}
+
+	/**
+	 * Adds a mapping for a key that isn't mapped yet, without looking the key up, as when
+	 * decoding a property section in which the keys are unique
+	 */
+	public void appendInt(int key, int value) {
+		int index = append(key);
+		values[index] = value;
+	}
+
+	public int intAt(int index) {
+		Objects.checkIndex(index, size());
+		return values[index];
+	}
+
+	@Override
+	protected Integer valueAt(int index) {
+		return values[index];
+	}
+
+	@Override
+	protected void setValueAt(int index, Integer value) {
+		values[index] = value;
+	}
+
+	@Override
+	protected void resizeValues(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void moveValues(int from, int to, int count) {
+		System.arraycopy(values, from, values, to, count);
+	}
+
+	@Override
+	protected boolean allowsNullValues() {
+		return false;
+	}
+}
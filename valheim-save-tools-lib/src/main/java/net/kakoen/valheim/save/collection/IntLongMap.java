@@ -0,0 +1,72 @@
+package net.kakoen.valheim.save.collection;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An insertion ordered map from int keys to unboxed long values
+ */
+public class IntLongMap extends AbstractIntKeyMap<Long> {
+
+	private static final long[] NO_VALUES = new long[0];
+
+	private long[] values;
+
+	public IntLongMap() {
+		this(0);
+	}
+
+	public IntLongMap(int capacity) {
+		super(capacity);
+		values = capacity > 0 ? new long[capacity] : NO_VALUES;
+	}
+
+	public long getLong(int key, long defaultValue) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : defaultValue;
+	}
+
+	public void putLong(int key, long value) {
+		int index = indexFor(key);
+		values[index] = value;
+	}
+
+	/**
+	 * Adds a mapping for a key that isn't mapped yet, without looking the key up, as when
+	 * decoding a property section in which the keys are unique
+	 */
+	public void appendLong(int key, long value) {
+		int index = append(key);
+		values[index] = value;
+	}
+
+	public long longAt(int index) {
+		Objects.checkIndex(index, size());
+		return values[index];
+	}
+
+	@Override
+	protected Long valueAt(int index) {
+		return values[index];
+	}
+
+	@Override
+	protected void setValueAt(int index, Long value) {
+		values[index] = value;
+	}
+
+	@Override
+	protected void resizeValues(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void moveValues(int from, int to, int count) {
+		System.arraycopy(values, from, values, to, count);
+	}
+
+	@Override
+	protected boolean allowsNullValues() {
+		return false;
+	}
+}
@@ -0,0 +1,57 @@
+package net.kakoen.valheim.save.collection;
+
+import java.util.Arrays;
+
+/**
+ * An insertion ordered map from int keys to object values
+ */
+public class IntObjectMap<V> extends AbstractIntKeyMap<V> {
+
+	private static final Object[] NO_VALUES = new Object[0];
+
+	private Object[] values;
+
+	public IntObjectMap() {
+		this(0);
+	}
+
+	public IntObjectMap(int capacity) {
+		super(capacity);
+		values = capacity > 0 ? new Object[capacity] : NO_VALUES;
+	}
+
+	/**
+	 * Adds a mapping for a key that isn't mapped yet, without looking the key up, as when
+	 * decoding a property section in which the keys are unique
+	 */
+	public void appendValue(int key, V value) {
+		int index = append(key);
+		values[index] = value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected V valueAt(int index) {
+		return (V) values[index];
+	}
+
+	@Override
+	protected void setValueAt(int index, V value) {
+		values[index] = value;
+	}
+
+	@Override
+	protected void resizeValues(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void moveValues(int from, int to, int count) {
+		System.arraycopy(values, from, values, to, count);
+	}
+
+	@Override
+	protected void clearValueAt(int index) {
+		values[index] = null;
+	}
+}
@@ -0,0 +1,87 @@
+package net.kakoen.valheim.save.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import lombok.Getter;
+
+/**
+ * The values of a column in one row group, backed by a read-only mapping of the file. Values are
+ * read straight from the mapping; {@link #getData()} gives access to the raw little endian values
+ * for bulk reads, for example through {@link ByteBuffer#asFloatBuffer()}.
+ */
+public class ColumnChunk {
+	
+	@Getter
+	private final ZdoColumn column;
+	
+	/**
+	 * The number of values, which for {@link ColumnType#BYTES} columns is the number of bytes
+	 */
+	@Getter
+	private final int size;
+	
+	@Getter
+	private final long min;
+	
+	@Getter
+	private final long max;
+	
+	private final ByteBuffer data;
+	
+	ColumnChunk(ZdoColumn column, int size, long min, long max, ByteBuffer data) {
+		this.column = column;
+		this.size = size;
+		this.min = min;
+		this.max = max;
+		this.data = data;
+	}
+	
+	/**
+	 * Returns whether the chunk may contain values in the given range, according to its minimum and maximum
+	 */
+	public boolean mayContain(long from, long to) {
+		return !column.getType().isWithStats() || (size > 0 && min <= to && max >= from);
+	}
+	
+	public ByteBuffer getData() {
+		return data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	public int getInt(int index) {
+		switch(column.getType()) {
+			case INT8:
+			case BYTES:
+				return data.get(index);
+			case INT16:
+				return data.getShort(index * 2);
+			case UINT16:
+				return Short.toUnsignedInt(data.getShort(index * 2));
+			case INT32:
+				return data.getInt(index * 4);
+			default:
+				throw new IllegalStateException("Column " + column + " of type " + column.getType() + " has no int values");
+		}
+	}
+	
+	public long getLong(int index) {
+		return column.getType() == ColumnType.INT64 ? data.getLong(index * 8) : getInt(index);
+	}
+	
+	public float getFloat(int index) {
+		if(column.getType() != ColumnType.FLOAT32) {
+			throw new IllegalStateException("Column " + column + " of type " + column.getType() + " has no float values");
+		}
+		return data.getFloat(index * 4);
+	}
+	
+	/**
+	 * Returns a value of a {@link ColumnType#BYTES} column, given the chunk with the end offsets of its values
+	 */
+	public byte[] getBytes(ColumnChunk ends, int index) {
+		int start = index == 0 ? 0 : ends.getInt(index - 1);
+		byte[] bytes = new byte[ends.getInt(index) - start];
+		data.duplicate().position(start).get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,30 @@
+package net.kakoen.valheim.save.columnar;
+
+import lombok.Getter;
+
+/**
+ * The encoding of the values of a column, all little endian
+ */
+public enum ColumnType {
+	INT8(1, true),
+	INT16(2, true),
+	UINT16(2, true),
+	INT32(4, true),
+	INT64(8, true),
+	FLOAT32(4, false),
+	BYTES(1, false);
+	
+	@Getter
+	private final int width;
+	
+	/**
+	 * Whether the minimum and maximum of each chunk are stored
+	 */
+	@Getter
+	private final boolean withStats;
+	
+	ColumnType(int width, boolean withStats) {
+		this.width = width;
+		this.withStats = withStats;
+	}
+}
@@ -0,0 +1,76 @@
+package net.kakoen.valheim.save.columnar;
+
+import lombok.Getter;
+
+/**
+ * The columns of a columnar zdo file.
+ * <p>
+ * Each property table has a column with the row of the zdo the property belongs to, and one with
+ * the hash of its key. Strings and byte arrays are stored as a column with the end offset of each
+ * value within the chunk, followed by a column with the bytes of all values of the chunk.
+ */
+public enum ZdoColumn {
+	/** The index of the zdo in the zdo list of the archive */
+	INDEX(ZdoTable.ZDOS, ColumnType.INT32),
+	/** Index in the prefab dictionary, see {@link ZdoColumnReader#getPrefabDictionary()} */
+	PREFAB(ZdoTable.ZDOS, ColumnType.UINT16),
+	SECTOR_X(ZdoTable.ZDOS, ColumnType.INT16),
+	SECTOR_Y(ZdoTable.ZDOS, ColumnType.INT16),
+	POSITION_X(ZdoTable.ZDOS, ColumnType.FLOAT32),
+	POSITION_Y(ZdoTable.ZDOS, ColumnType.FLOAT32),
+	POSITION_Z(ZdoTable.ZDOS, ColumnType.FLOAT32),
+	ROTATION_X(ZdoTable.ZDOS, ColumnType.FLOAT32),
+	ROTATION_Y(ZdoTable.ZDOS, ColumnType.FLOAT32),
+	ROTATION_Z(ZdoTable.ZDOS, ColumnType.FLOAT32),
+	TYPE(ZdoTable.ZDOS, ColumnType.INT8),
+	/** {@link ZdoColumnWriter#FLAG_PERSISTENT}, {@link ZdoColumnWriter#FLAG_DISTANT} and {@link ZdoColumnWriter#FLAG_ROTATION} */
+	FLAGS(ZdoTable.ZDOS, ColumnType.INT8),
+	
+	FLOAT_ZDO(ZdoTable.FLOATS, ColumnType.INT32),
+	FLOAT_KEY(ZdoTable.FLOATS, ColumnType.INT32),
+	FLOAT_VALUE(ZdoTable.FLOATS, ColumnType.FLOAT32),
+	
+	VECTOR3_ZDO(ZdoTable.VECTOR3S, ColumnType.INT32),
+	VECTOR3_KEY(ZdoTable.VECTOR3S, ColumnType.INT32),
+	VECTOR3_X(ZdoTable.VECTOR3S, ColumnType.FLOAT32),
+	VECTOR3_Y(ZdoTable.VECTOR3S, ColumnType.FLOAT32),
+	VECTOR3_Z(ZdoTable.VECTOR3S, ColumnType.FLOAT32),
+	
+	QUAT_ZDO(ZdoTable.QUATS, ColumnType.INT32),
+	QUAT_KEY(ZdoTable.QUATS, ColumnType.INT32),
+	QUAT_X(ZdoTable.QUATS, ColumnType.FLOAT32),
+	QUAT_Y(ZdoTable.QUATS, ColumnType.FLOAT32),
+	QUAT_Z(ZdoTable.QUATS, ColumnType.FLOAT32),
+	QUAT_W(ZdoTable.QUATS, ColumnType.FLOAT32),
+	
+	INT_ZDO(ZdoTable.INTS, ColumnType.INT32),
+	INT_KEY(ZdoTable.INTS, ColumnType.INT32),
+	INT_VALUE(ZdoTable.INTS, ColumnType.INT32),
+	
+	LONG_ZDO(ZdoTable.LONGS, ColumnType.INT32),
+	LONG_KEY(ZdoTable.LONGS, ColumnType.INT32),
+	LONG_VALUE(ZdoTable.LONGS, ColumnType.INT64),
+	
+	STRING_ZDO(ZdoTable.STRINGS, ColumnType.INT32),
+	STRING_KEY(ZdoTable.STRINGS, ColumnType.INT32),
+	/** End offset of the UTF-8 bytes of each string in {@link #STRING_DATA} */
+	STRING_END(ZdoTable.STRINGS, ColumnType.INT32),
+	STRING_DATA(ZdoTable.STRINGS, ColumnType.BYTES),
+	
+	BYTE_ARRAY_ZDO(ZdoTable.BYTE_ARRAYS, ColumnType.INT32),
+	BYTE_ARRAY_KEY(ZdoTable.BYTE_ARRAYS, ColumnType.INT32),
+	/** End offset of each byte array in {@link #BYTE_ARRAY_DATA} */
+	BYTE_ARRAY_END(ZdoTable.BYTE_ARRAYS, ColumnType.INT32),
+	BYTE_ARRAY_DATA(ZdoTable.BYTE_ARRAYS, ColumnType.BYTES);
+	
+	@Getter
+	private final ZdoTable table;
+	
+	@Getter
+	private final ColumnType type;
+	
+	ZdoColumn(ZdoTable table, ColumnType type) {
+		this.table = table;
+		this.type = type;
+	}
+}
@@ -0,0 +1,180 @@
+package net.kakoen.valheim.save.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads files written by {@link ZdoColumnWriter}. Only the footer is read when opening the file;
+ * the chunks of a column are mapped into memory when they're asked for, so a query only reads the
+ * columns and row groups it needs. Use the statistics of a chunk, for example through
+ * {@link #mayContain(ZdoColumn, int, long, long)}, to skip row groups without mapping them.
+ */
+public class ZdoColumnReader implements AutoCloseable {
+
+	private final FileChannel channel;
+	private int[] prefabDictionary;
+	private final Map<ZdoTable, TableInfo> tables = new EnumMap<>(ZdoTable.class);
+	private final int[] columnIndexInTable = new int[ZdoColumn.values().length];
+
+	public ZdoColumnReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			ByteBuffer header = read(0, 8);
+			ByteBuffer tail = read(size - 12, 12);
+			long footerOffset = tail.getLong();
+			if(header.getInt() != ZdoColumnWriter.MAGIC || tail.getInt() != ZdoColumnWriter.MAGIC) {
+				throw new IllegalStateException("File " + file.getAbsolutePath() + " is not a columnar zdo file");
+			}
+			int version = header.getInt();
+			if(version != ZdoColumnWriter.VERSION) {
+				throw new IllegalStateException("Unsupported columnar zdo file version " + version + ", expected " + ZdoColumnWriter.VERSION);
+			}
+			readFooter(read(footerOffset, (int) (size - 12 - footerOffset)));
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private ByteBuffer read(long offset, int length) throws IOException {
+		if(offset < 0 || length < 0) {
+			throw new IllegalStateException("Columnar zdo file is truncated");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new IllegalStateException("Columnar zdo file is truncated");
+			}
+		}
+		return buffer.flip();
+	}
+
+	private void readFooter(ByteBuffer footer) {
+		prefabDictionary = new int[footer.getInt()];
+		for(int i = 0; i < prefabDictionary.length; i++) {
+			prefabDictionary[i] = footer.getInt();
+		}
+		int tableCount = footer.getInt();
+		for(int t = 0; t < tableCount; t++) {
+			ZdoTable table = ZdoTable.values()[footer.getInt()];
+			List<ZdoColumn> columns = table.getColumns();
+			int columnCount = footer.getInt();
+			if(columnCount != columns.size()) {
+				throw new IllegalStateException("Table " + table + " has " + columnCount + " columns, expected " + columns.size());
+			}
+			for(int i = 0; i < columns.size(); i++) {
+				columnIndexInTable[columns.get(i).ordinal()] = i;
+			}
+			TableInfo info = new TableInfo(footer.getLong(), footer.getInt(), columnCount);
+			long firstRow = 0;
+			for(int group = 0; group < info.rows.length; group++) {
+				info.rows[group] = footer.getInt();
+				info.firstRows[group] = firstRow;
+				firstRow += info.rows[group];
+				for(int i = 0; i < columnCount; i++) {
+					info.offsets[group][i] = footer.getLong();
+					info.lengths[group][i] = footer.getInt();
+					info.mins[group][i] = footer.getLong();
+					info.maxs[group][i] = footer.getLong();
+				}
+			}
+			tables.put(table, info);
+		}
+	}
+
+	/**
+	 * Returns the hashes of the prefabs, sorted, indexed by the values of the {@link ZdoColumn#PREFAB} column
+	 */
+	public int[] getPrefabDictionary() {
+		return prefabDictionary.clone();
+	}
+
+	public int getPrefab(int dictionaryIndex) {
+		return prefabDictionary[dictionaryIndex];
+	}
+
+	public long getRowCount(ZdoTable table) {
+		return getTable(table).rowCount;
+	}
+
+	public int getRowGroupCount(ZdoTable table) {
+		return getTable(table).rows.length;
+	}
+
+	/**
+	 * Returns the number of rows in a row group of the table
+	 */
+	public int getRowCount(ZdoTable table, int rowGroup) {
+		return getTable(table).rows[rowGroup];
+	}
+
+	/**
+	 * Returns the row in the table of the first row of the row group
+	 */
+	public long getFirstRow(ZdoTable table, int rowGroup) {
+		return getTable(table).firstRows[rowGroup];
+	}
+
+	/**
+	 * Returns whether the chunk of the column in the row group may contain values in the given
+	 * range, without reading the chunk
+	 */
+	public boolean mayContain(ZdoColumn column, int rowGroup, long from, long to) {
+		TableInfo info = getTable(column.getTable());
+		int index = columnIndexInTable[column.ordinal()];
+		return !column.getType().isWithStats() || (info.rows[rowGroup] > 0 && info.mins[rowGroup][index] <= to && info.maxs[rowGroup][index] >= from);
+	}
+
+	/**
+	 * Maps the chunk of the column in the row group
+	 */
+	public ColumnChunk getChunk(ZdoColumn column, int rowGroup) throws IOException {
+		TableInfo info = getTable(column.getTable());
+		int index = columnIndexInTable[column.ordinal()];
+		int length = info.lengths[rowGroup][index];
+		ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, info.offsets[rowGroup][index], length).order(ByteOrder.LITTLE_ENDIAN);
+		return new ColumnChunk(column, length / column.getType().getWidth(), info.mins[rowGroup][index], info.maxs[rowGroup][index], data);
+	}
+
+	private TableInfo getTable(ZdoTable table) {
+		TableInfo info = tables.get(table);
+		if(info == null) {
+			throw new IllegalStateException("File has no table " + table);
+		}
+		return info;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static class TableInfo {
+
+		private final long rowCount;
+		private final int[] rows;
+		private final long[] firstRows;
+		private final long[][] offsets;
+		private final int[][] lengths;
+		private final long[][] mins;
+		private final long[][] maxs;
+
+		private TableInfo(long rowCount, int rowGroupCount, int columnCount) {
+			this.rowCount = rowCount;
+			rows = new int[rowGroupCount];
+			firstRows = new long[rowGroupCount];
+			offsets = new long[rowGroupCount][columnCount];
+			lengths = new int[rowGroupCount][columnCount];
+			mins = new long[rowGroupCount][columnCount];
+			maxs = new long[rowGroupCount][columnCount];
+		}
+	}
+}
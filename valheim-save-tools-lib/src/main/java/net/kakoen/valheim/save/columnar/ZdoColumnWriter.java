@@ -0,0 +1,407 @@
+package net.kakoen.valheim.save.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.save.SectorIndex;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.struct.Quaternion;
+import net.kakoen.valheim.save.struct.Vector2s;
+import net.kakoen.valheim.save.struct.Vector3;
+
+/**
+ * Writes the zdos of a save file in a columnar layout, for queries that only need a few of their
+ * fields. Every {@link ZdoTable} is split into row groups, and each column of a row group is
+ * stored as one contiguous chunk of little endian values, aligned to 8 bytes, so a chunk can be
+ * read straight from a mapping of the file. Prefabs are stored as an index in a dictionary of the
+ * prefab hashes, and integer columns keep the minimum and maximum of each chunk, so row groups
+ * outside a range of sectors can be skipped without reading them.
+ * <p>
+ * Zdos are written ordered by sector, and the properties of a zdo refer to its row. The file is
+ * meant for reading with {@link ZdoColumnReader}; it holds no connections or other data needed to
+ * write a save file again.
+ * <p>
+ * Layout: magic, version, the chunks, then a footer with the prefab dictionary and, per table,
+ * the location and statistics of each chunk. The file ends with the offset of the footer and the
+ * magic again.
+ */
+@Slf4j
+public class ZdoColumnWriter {
+
+	public static final int MAGIC = 0x4C4F435A; //"ZCOL"
+	public static final int VERSION = 1;
+	public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+	public static final int FLAG_PERSISTENT = 1;
+	public static final int FLAG_DISTANT = 2;
+	/** Set when the zdo has a rotation, otherwise the rotation columns are 0 */
+	public static final int FLAG_ROTATION = 4;
+
+	private static final int ALIGNMENT = 8;
+
+	private final FileChannel channel;
+	private final int rowGroupSize;
+	private final int[] prefabDictionary;
+	private final Map<ZdoColumn, ColumnBuffer> columns = new EnumMap<>(ZdoColumn.class);
+	private final Map<ZdoTable, TableBuffer> tables = new EnumMap<>(ZdoTable.class);
+
+	private long position;
+
+	private ZdoColumnWriter(FileChannel channel, int rowGroupSize, int[] prefabDictionary) throws IOException {
+		if(prefabDictionary.length > 0x10000) {
+			throw new IllegalStateException("Too many prefabs for the prefab column: " + prefabDictionary.length);
+		}
+		this.channel = channel;
+		this.rowGroupSize = rowGroupSize;
+		this.prefabDictionary = prefabDictionary;
+		for(ZdoColumn column : ZdoColumn.values()) {
+			columns.put(column, new ColumnBuffer(column));
+		}
+		for(ZdoTable table : ZdoTable.values()) {
+			tables.put(table, new TableBuffer(table));
+		}
+		write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(VERSION).flip());
+	}
+
+	public static void write(ValheimSaveArchive archive, File file) throws IOException {
+		write(archive, file, DEFAULT_ROW_GROUP_SIZE);
+	}
+
+	/**
+	 * Writes the zdos of the archive, with the given number of rows per row group
+	 */
+	public static void write(ValheimSaveArchive archive, File file, int rowGroupSize) throws IOException {
+		if(rowGroupSize < 1) {
+			throw new IllegalArgumentException("Row group size must be at least 1");
+		}
+		List<Zdo> zdoList = archive.getZdoList();
+		SectorIndex sectorIndex = archive.getSectorIndex();
+		int[] order = new int[zdoList.size()];
+		int[] next = new int[1];
+		for(Vector2s sector : sectorIndex.getSectors()) {
+			sectorIndex.forEachIndexInSector(sector, index -> {
+				if(next[0] < order.length) {
+					order[next[0]] = index;
+				}
+				next[0]++;
+			});
+		}
+		checkPermutation(order, next[0]);
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ZdoColumnWriter writer = new ZdoColumnWriter(channel, rowGroupSize, archive.getPrefabIndex().getPrefabs());
+			for(int index : order) {
+				writer.writeZdo(index, zdoList.get(index));
+			}
+			writer.finish();
+			log.info("Wrote {} zdos in columns, {} bytes to {}", zdoList.size(), writer.position, file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Checks that the rows hold every index of the zdo list exactly once, so no zdo is written twice or left out
+	 */
+	private static void checkPermutation(int[] order, int count) {
+		if(count != order.length) {
+			throw new IllegalStateException("Sector index holds " + count + " zdos, the zdo list has " + order.length);
+		}
+		boolean[] seen = new boolean[order.length];
+		for(int index : order) {
+			if(index < 0 || index >= order.length || seen[index]) {
+				throw new IllegalStateException("Sector index doesn't match the zdo list at zdo " + index);
+			}
+			seen[index] = true;
+		}
+	}
+
+	private void writeZdo(int index, Zdo zdo) throws IOException {
+		TableBuffer zdos = tables.get(ZdoTable.ZDOS);
+		int row = (int) zdos.getRowCount();
+		columns.get(ZdoColumn.INDEX).putInt32(index);
+		columns.get(ZdoColumn.PREFAB).putInt16(Arrays.binarySearch(prefabDictionary, zdo.getPrefab()));
+		columns.get(ZdoColumn.SECTOR_X).putInt16(zdo.getSector().getX());
+		columns.get(ZdoColumn.SECTOR_Y).putInt16(zdo.getSector().getY());
+		columns.get(ZdoColumn.POSITION_X).putFloat(zdo.getPosition().getX());
+		columns.get(ZdoColumn.POSITION_Y).putFloat(zdo.getPosition().getY());
+		columns.get(ZdoColumn.POSITION_Z).putFloat(zdo.getPosition().getZ());
+		Vector3 rotation = zdo.getRotation();
+		columns.get(ZdoColumn.ROTATION_X).putFloat(rotation != null ? rotation.getX() : 0);
+		columns.get(ZdoColumn.ROTATION_Y).putFloat(rotation != null ? rotation.getY() : 0);
+		columns.get(ZdoColumn.ROTATION_Z).putFloat(rotation != null ? rotation.getZ() : 0);
+		columns.get(ZdoColumn.TYPE).putInt8(zdo.getType());
+		columns.get(ZdoColumn.FLAGS).putInt8((zdo.isPersistent() ? FLAG_PERSISTENT : 0)
+				| (zdo.isDistant() ? FLAG_DISTANT : 0)
+				| (rotation != null ? FLAG_ROTATION : 0));
+		zdos.endRow();
+
+		Map<Integer, Float> floats = zdo.getAllFloats();
+		if(floats != null) {
+			for(Map.Entry<Integer, Float> entry : floats.entrySet()) {
+				startProperty(ZdoColumn.FLOAT_ZDO, ZdoColumn.FLOAT_KEY, row, entry.getKey());
+				columns.get(ZdoColumn.FLOAT_VALUE).putFloat(entry.getValue());
+				tables.get(ZdoTable.FLOATS).endRow();
+			}
+		}
+		Map<Integer, Vector3> vector3s = zdo.getAllVector3s();
+		if(vector3s != null) {
+			for(Map.Entry<Integer, Vector3> entry : vector3s.entrySet()) {
+				startProperty(ZdoColumn.VECTOR3_ZDO, ZdoColumn.VECTOR3_KEY, row, entry.getKey());
+				columns.get(ZdoColumn.VECTOR3_X).putFloat(entry.getValue().getX());
+				columns.get(ZdoColumn.VECTOR3_Y).putFloat(entry.getValue().getY());
+				columns.get(ZdoColumn.VECTOR3_Z).putFloat(entry.getValue().getZ());
+				tables.get(ZdoTable.VECTOR3S).endRow();
+			}
+		}
+		Map<Integer, Quaternion> quats = zdo.getAllQuats();
+		if(quats != null) {
+			for(Map.Entry<Integer, Quaternion> entry : quats.entrySet()) {
+				startProperty(ZdoColumn.QUAT_ZDO, ZdoColumn.QUAT_KEY, row, entry.getKey());
+				columns.get(ZdoColumn.QUAT_X).putFloat(entry.getValue().getX());
+				columns.get(ZdoColumn.QUAT_Y).putFloat(entry.getValue().getY());
+				columns.get(ZdoColumn.QUAT_Z).putFloat(entry.getValue().getZ());
+				columns.get(ZdoColumn.QUAT_W).putFloat(entry.getValue().getW());
+				tables.get(ZdoTable.QUATS).endRow();
+			}
+		}
+		Map<Integer, Integer> ints = zdo.getAllInts();
+		if(ints != null) {
+			for(Map.Entry<Integer, Integer> entry : ints.entrySet()) {
+				startProperty(ZdoColumn.INT_ZDO, ZdoColumn.INT_KEY, row, entry.getKey());
+				columns.get(ZdoColumn.INT_VALUE).putInt32(entry.getValue());
+				tables.get(ZdoTable.INTS).endRow();
+			}
+		}
+		Map<Integer, Long> longs = zdo.getAllLongs();
+		if(longs != null) {
+			for(Map.Entry<Integer, Long> entry : longs.entrySet()) {
+				startProperty(ZdoColumn.LONG_ZDO, ZdoColumn.LONG_KEY, row, entry.getKey());
+				columns.get(ZdoColumn.LONG_VALUE).putInt64(entry.getValue());
+				tables.get(ZdoTable.LONGS).endRow();
+			}
+		}
+		Map<Integer, String> strings = zdo.getAllStrings();
+		if(strings != null) {
+			for(Map.Entry<Integer, String> entry : strings.entrySet()) {
+				startProperty(ZdoColumn.STRING_ZDO, ZdoColumn.STRING_KEY, row, entry.getKey());
+				putBytes(ZdoColumn.STRING_END, ZdoColumn.STRING_DATA, entry.getValue().getBytes(StandardCharsets.UTF_8));
+				tables.get(ZdoTable.STRINGS).endRow();
+			}
+		}
+		Map<Integer, byte[]> byteArrays = zdo.getAllByteArrays();
+		if(byteArrays != null) {
+			for(Map.Entry<Integer, byte[]> entry : byteArrays.entrySet()) {
+				startProperty(ZdoColumn.BYTE_ARRAY_ZDO, ZdoColumn.BYTE_ARRAY_KEY, row, entry.getKey());
+				putBytes(ZdoColumn.BYTE_ARRAY_END, ZdoColumn.BYTE_ARRAY_DATA, entry.getValue());
+				tables.get(ZdoTable.BYTE_ARRAYS).endRow();
+			}
+		}
+	}
+
+	private void startProperty(ZdoColumn zdoColumn, ZdoColumn keyColumn, int row, int key) {
+		columns.get(zdoColumn).putInt32(row);
+		columns.get(keyColumn).putInt32(key);
+	}
+
+	private void putBytes(ZdoColumn endColumn, ZdoColumn dataColumn, byte[] bytes) {
+		ColumnBuffer data = columns.get(dataColumn);
+		data.putBytes(bytes);
+		columns.get(endColumn).putInt32(data.buffer.position());
+	}
+
+	private void finish() throws IOException {
+		for(TableBuffer table : tables.values()) {
+			table.flush();
+		}
+		int footerSize = 4 + prefabDictionary.length * 4 + 4;
+		for(TableBuffer table : tables.values()) {
+			footerSize += 4 + 4 + 8 + 4 + table.rowGroups.size() * (4 + table.columns.size() * RowGroup.CHUNK_SIZE);
+		}
+		ByteBuffer footer = ByteBuffer.allocate(footerSize + 12).order(ByteOrder.LITTLE_ENDIAN);
+		footer.putInt(prefabDictionary.length);
+		for(int prefab : prefabDictionary) {
+			footer.putInt(prefab);
+		}
+		footer.putInt(tables.size());
+		for(TableBuffer table : tables.values()) {
+			footer.putInt(table.table.ordinal());
+			footer.putInt(table.columns.size());
+			footer.putLong(table.getRowCount());
+			footer.putInt(table.rowGroups.size());
+			for(RowGroup rowGroup : table.rowGroups) {
+				rowGroup.write(footer);
+			}
+		}
+		footer.putLong(position);
+		footer.putInt(MAGIC);
+		write(footer.flip());
+	}
+
+	private long writeChunk(ByteBuffer chunk) throws IOException {
+		int padding = (int) (-position & (ALIGNMENT - 1));
+		if(padding > 0) {
+			write(ByteBuffer.allocate(padding));
+		}
+		long offset = position;
+		write(chunk);
+		return offset;
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			position += channel.write(buffer);
+		}
+	}
+
+	private class TableBuffer {
+
+		private final ZdoTable table;
+		private final List<ColumnBuffer> columns = new ArrayList<>();
+		private final List<RowGroup> rowGroups = new ArrayList<>();
+		private long flushedRows;
+		private int rows;
+
+		private TableBuffer(ZdoTable table) {
+			this.table = table;
+			for(ZdoColumn column : table.getColumns()) {
+				columns.add(ZdoColumnWriter.this.columns.get(column));
+			}
+		}
+
+		private long getRowCount() {
+			return flushedRows + rows;
+		}
+
+		private void endRow() throws IOException {
+			if(++rows == rowGroupSize) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			if(rows == 0) {
+				return;
+			}
+			RowGroup rowGroup = new RowGroup(rows, columns.size());
+			for(int i = 0; i < columns.size(); i++) {
+				ColumnBuffer column = columns.get(i);
+				int length = column.buffer.position();
+				rowGroup.offsets[i] = writeChunk(column.buffer.flip());
+				rowGroup.lengths[i] = length;
+				rowGroup.mins[i] = column.min;
+				rowGroup.maxs[i] = column.max;
+				column.reset();
+			}
+			rowGroups.add(rowGroup);
+			flushedRows += rows;
+			rows = 0;
+		}
+	}
+
+	private static class RowGroup {
+
+		private static final int CHUNK_SIZE = 8 + 4 + 8 + 8;
+
+		private final int rows;
+		private final long[] offsets;
+		private final int[] lengths;
+		private final long[] mins;
+		private final long[] maxs;
+
+		private RowGroup(int rows, int columnCount) {
+			this.rows = rows;
+			offsets = new long[columnCount];
+			lengths = new int[columnCount];
+			mins = new long[columnCount];
+			maxs = new long[columnCount];
+		}
+
+		private void write(ByteBuffer footer) {
+			footer.putInt(rows);
+			for(int i = 0; i < offsets.length; i++) {
+				footer.putLong(offsets[i]);
+				footer.putInt(lengths[i]);
+				footer.putLong(mins[i]);
+				footer.putLong(maxs[i]);
+			}
+		}
+	}
+
+	private static class ColumnBuffer {
+
+		private final ZdoColumn column;
+		private ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+		private long min;
+		private long max;
+
+		private ColumnBuffer(ZdoColumn column) {
+			this.column = column;
+			reset();
+		}
+
+		private void reset() {
+			buffer.clear();
+			min = Long.MAX_VALUE;
+			max = Long.MIN_VALUE;
+		}
+
+		private void ensureRemaining(int bytes) {
+			if(buffer.remaining() < bytes) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+				grown.put(buffer.flip());
+				buffer = grown;
+			}
+		}
+
+		private void updateStats(long value) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		private void putInt8(int value) {
+			ensureRemaining(1);
+			buffer.put((byte) value);
+			updateStats((byte) value);
+		}
+
+		private void putInt16(int value) {
+			ensureRemaining(2);
+			buffer.putShort((short) value);
+			updateStats(column.getType() == ColumnType.UINT16 ? Short.toUnsignedInt((short) value) : (short) value);
+		}
+
+		private void putInt32(int value) {
+			ensureRemaining(4);
+			buffer.putInt(value);
+			updateStats(value);
+		}
+
+		private void putInt64(long value) {
+			ensureRemaining(8);
+			buffer.putLong(value);
+			updateStats(value);
+		}
+
+		private void putFloat(float value) {
+			ensureRemaining(4);
+			buffer.putFloat(value);
+		}
+
+		private void putBytes(byte[] bytes) {
+			ensureRemaining(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+}
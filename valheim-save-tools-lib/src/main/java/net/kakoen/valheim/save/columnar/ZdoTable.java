@@ -0,0 +1,32 @@
+package net.kakoen.valheim.save.columnar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tables of a columnar zdo file. The zdos table has a row per zdo, the property tables have
+ * a row per property, referring to the row of their zdo.
+ */
+public enum ZdoTable {
+	ZDOS,
+	FLOATS,
+	VECTOR3S,
+	QUATS,
+	INTS,
+	LONGS,
+	STRINGS,
+	BYTE_ARRAYS;
+	
+	/**
+	 * Returns the columns of the table, in the order they're stored
+	 */
+	public List<ZdoColumn> getColumns() {
+		List<ZdoColumn> columns = new ArrayList<>();
+		for(ZdoColumn column : ZdoColumn.values()) {
+			if(column.getTable() == this) {
+				columns.add(column);
+			}
+		}
+		return columns;
+	}
+}
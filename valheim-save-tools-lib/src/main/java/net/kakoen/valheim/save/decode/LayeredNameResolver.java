@@ -0,0 +1,76 @@
+package net.kakoen.valheim.save.decode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves names from several resolvers, asking them in order until one knows the name.
+ * Resolvers earlier in the list take precedence, so dictionaries for mods can override the
+ * names in the bundled dictionary.
+ */
+public class LayeredNameResolver implements NameResolver {
+	
+	private final NameResolver[] resolvers;
+	
+	public LayeredNameResolver(List<? extends NameResolver> resolvers) {
+		this.resolvers = resolvers.toArray(new NameResolver[0]);
+	}
+	
+	public static LayeredNameResolver of(NameResolver... resolvers) {
+		return new LayeredNameResolver(Arrays.asList(resolvers));
+	}
+	
+	/**
+	 * Loads the dictionaries from the given files, followed by the bundled dictionary. See
+	 * {@link ReverseHashcodeLookup#fromFile(File)} for the supported files. All files in a
+	 * directory are loaded, in order of their names.
+	 */
+	public static LayeredNameResolver withDictionaries(List<File> files) throws IOException {
+		List<NameResolver> resolvers = new ArrayList<>();
+		for(File file : files) {
+			if(file.isDirectory()) {
+				File[] children = file.listFiles(File::isFile);
+				if(children == null) {
+					throw new IOException("Unable to list dictionaries in " + file.getAbsolutePath());
+				}
+				Arrays.sort(children);
+				for(File child : children) {
+					resolvers.add(ReverseHashcodeLookup.fromFile(child));
+				}
+			} else {
+				resolvers.add(ReverseHashcodeLookup.fromFile(file));
+			}
+		}
+		resolvers.add(ReverseHashcodeLookup.INSTANCE);
+		return new LayeredNameResolver(resolvers);
+	}
+	
+	public List<NameResolver> getResolvers() {
+		return Collections.unmodifiableList(Arrays.asList(resolvers));
+	}
+	
+	@Override
+	public String resolve(int stableHashCode) {
+		for(NameResolver resolver : resolvers) {
+			String name = resolver.resolve(stableHashCode);
+			if(name != null) {
+				return name;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public boolean isKnown(int stableHashCode) {
+		for(NameResolver resolver : resolvers) {
+			if(resolver.isKnown(stableHashCode)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
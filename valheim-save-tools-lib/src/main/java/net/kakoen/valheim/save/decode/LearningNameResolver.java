@@ -0,0 +1,60 @@
+package net.kakoen.valheim.save.decode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps a resolver, counting how often each hash code couldn't be resolved. The most
+ * frequent ones are the names most worth adding to a dictionary.
+ */
+public class LearningNameResolver implements NameResolver {
+	
+	private final NameResolver resolver;
+	private final Map<Integer, LongAdder> unresolved = new ConcurrentHashMap<>();
+	
+	public LearningNameResolver(NameResolver resolver) {
+		this.resolver = resolver;
+	}
+	
+	@Override
+	public String resolve(int stableHashCode) {
+		String name = resolver.resolve(stableHashCode);
+		if(name == null) {
+			unresolved.computeIfAbsent(stableHashCode, key -> new LongAdder()).increment();
+		}
+		return name;
+	}
+	
+	@Override
+	public boolean isKnown(int stableHashCode) {
+		return resolver.isKnown(stableHashCode);
+	}
+	
+	/**
+	 * Returns the hash codes that couldn't be resolved with the number of times they were
+	 * looked up, most frequent first
+	 */
+	public Map<Integer, Long> getUnresolved() {
+		Map<Integer, Long> result = new LinkedHashMap<>();
+		unresolved.entrySet().stream()
+				.sorted(Comparator.comparing((Map.Entry<Integer, LongAdder> entry) -> entry.getValue().sum()).reversed()
+						.thenComparing(Map.Entry::getKey))
+				.forEach(entry -> result.put(entry.getKey(), entry.getValue().sum()));
+		return result;
+	}
+	
+	/**
+	 * Writes the unresolved hash codes as lines of the hash code and its count, separated by a tab
+	 */
+	public void writeUnresolved(Writer writer) throws IOException {
+		for(Map.Entry<Integer, Long> entry : getUnresolved().entrySet()) {
+			writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+		}
+		writer.flush();
+	}
+}
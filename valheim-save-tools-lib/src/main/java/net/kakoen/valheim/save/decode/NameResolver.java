@@ -0,0 +1,19 @@
+package net.kakoen.valheim.save.decode;
+
+/**
+ * Resolves stable hash codes of prefab names and property keys to the names they were computed from
+ */
+public interface NameResolver {
+	
+	/**
+	 * Returns the name with the given stable hash code, or null when it isn't known
+	 */
+	String resolve(int stableHashCode);
+	
+	/**
+	 * Returns whether the name with the given stable hash code is known, without counting it as a lookup
+	 */
+	default boolean isKnown(int stableHashCode) {
+		return resolve(stableHashCode) != null;
+	}
+}
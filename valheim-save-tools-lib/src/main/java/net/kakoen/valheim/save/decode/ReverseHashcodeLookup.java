@@ -1,53 +1,101 @@
 package net.kakoen.valheim.save.decode;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Looks up the known strings by their stable hash code. The table of hash codes is generated
+ * from known_strings.txt when building the library and stored in reverse_hashcodes.bin,
+ * sorted by hash code, so it can be loaded without hashing the strings and searched without
+ * boxing. When the generated table is missing, for example when running from an IDE, the
+ * table is built from known_strings.txt instead.
+ * <p>
+ * Tables can also be built from other dictionaries, see {@link LayeredNameResolver}.
+ */
 @Slf4j
-@Data
-public class ReverseHashcodeLookup {
-	
+public class ReverseHashcodeLookup implements NameResolver {
+
+	public static final String KNOWN_STRINGS_RESOURCE = "/known_strings.txt";
+	public static final String TABLE_RESOURCE = "/reverse_hashcodes.bin";
+
 	public static ReverseHashcodeLookup INSTANCE;
-	
+
 	static {
 		try {
-			INSTANCE = new ReverseHashcodeLookup();
+			INSTANCE = load();
 		}
 		catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
-	
-	private Map<Integer, String> stringsByStableHashcode = new HashMap<>();
-	
-	private List<String> readAllLines(InputStream is) {
+
+	private final int[] stableHashcodes;
+	private final String[] strings;
+
+	private ReverseHashcodeLookup(int[] stableHashcodes, String[] strings) {
+		this.stableHashcodes = stableHashcodes;
+		this.strings = strings;
+	}
+
+	private static ReverseHashcodeLookup load() throws IOException {
+		try (InputStream is = ReverseHashcodeLookup.class.getResourceAsStream(TABLE_RESOURCE)) {
+			if (is != null) {
+				ReverseHashcodeLookup lookup = read(is);
+				log.debug("Loaded {} strings for decoding", lookup.size());
+				return lookup;
+			}
+		}
+		log.debug("No generated table found, hashing known strings");
+		try (InputStream is = ReverseHashcodeLookup.class.getResourceAsStream(KNOWN_STRINGS_RESOURCE)) {
+			if (is == null) {
+				log.warn("No known strings found, names can't be resolved");
+				return new ReverseHashcodeLookup(new int[0], new String[0]);
+			}
+			ReverseHashcodeLookup lookup = fromKnownStrings(is);
+			log.debug("Loaded {} strings for decoding", lookup.size());
+			return lookup;
+		}
+	}
+
+	private static List<String> readAllLines(InputStream is) {
 		return new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))
 				.lines()
 				.collect(Collectors.toList());
 	}
-	
-	private ReverseHashcodeLookup() throws IOException {
+
+	/**
+	 * Builds the table from a list of known strings, one per line. Their lower case variants
+	 * are added, as well as numbered keys that are used for items, rooms and slots.
+	 */
+	public static ReverseHashcodeLookup fromKnownStrings(InputStream is) {
 		Set<String> stringList = new HashSet<>();
-		
-		try (InputStream is = ReverseHashcodeLookup.class.getResourceAsStream("/known_strings.txt")) {
-			for (String s : readAllLines(is)) {
-				stringList.add(s);
-				stringList.add(s.toLowerCase());
-			}
+
+		for (String s : readAllLines(is)) {
+			stringList.add(s);
+			stringList.add(s.toLowerCase());
 		}
-		
+
 		for(int i = 0; i < 200; i++) {
 			stringList.add("item" + i);
 			stringList.add("room" + i);
@@ -56,19 +104,119 @@ public class ReverseHashcodeLookup {
 			stringList.add("slot" + i);
 			stringList.add("root" + i);
 		}
-		
+
+		return fromStrings(stringList);
+	}
+
+	/**
+	 * Builds a table from a dictionary of names, one per line, like the names of the prefabs
+	 * of a mod. Empty lines and lines starting with # are skipped.
+	 */
+	public static ReverseHashcodeLookup fromNames(InputStream is) {
+		Set<String> stringList = new HashSet<>();
+		for (String s : readAllLines(is)) {
+			if (!s.isEmpty() && !s.startsWith("#")) {
+				stringList.add(s);
+			}
+		}
+		return fromStrings(stringList);
+	}
+
+	/**
+	 * Builds a table from the given names
+	 */
+	public static ReverseHashcodeLookup fromNames(Collection<String> names) {
+		return fromStrings(new HashSet<>(names));
+	}
+
+	/**
+	 * Loads a dictionary from a file. Files ending in .bin are read as tables written by
+	 * {@link #write(OutputStream)}, which don't need to be hashed when loading them. Other
+	 * files are read as text, see {@link #fromNames(InputStream)}.
+	 */
+	public static ReverseHashcodeLookup fromFile(File file) throws IOException {
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+			ReverseHashcodeLookup lookup = file.getName().endsWith(".bin") ? read(is) : fromNames(is);
+			log.debug("Loaded {} strings from {}", lookup.size(), file.getAbsolutePath());
+			return lookup;
+		}
+	}
+
+	private static ReverseHashcodeLookup fromStrings(Set<String> stringList) {
+		Map<Integer, String> stringsByStableHashcode = new HashMap<>();
 		for(String s : stringList) {
-			stringsByStableHashcode.put(StableHashCode.getStableHashCode(s), s);
+			stringsByStableHashcode.put(StableHashCode.computeStableHashCode(s), s);
+		}
+
+		int[] stableHashcodes = stringsByStableHashcode.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+		String[] strings = new String[stableHashcodes.length];
+		for(int i = 0; i < stableHashcodes.length; i++) {
+			strings[i] = stringsByStableHashcode.get(stableHashcodes[i]);
 		}
-		
-		log.debug("Loaded {} strings for decoding", stringsByStableHashcode.size());
-		
+		return new ReverseHashcodeLookup(stableHashcodes, strings);
 	}
-	
+
+	/**
+	 * Reads a table written by {@link #write(OutputStream)}
+	 */
+	public static ReverseHashcodeLookup read(InputStream is) throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		int size = dis.readInt();
+		int[] stableHashcodes = new int[size];
+		String[] strings = new String[size];
+		for(int i = 0; i < size; i++) {
+			stableHashcodes[i] = dis.readInt();
+		}
+		for(int i = 0; i < size; i++) {
+			strings[i] = dis.readUTF();
+		}
+		return new ReverseHashcodeLookup(stableHashcodes, strings);
+	}
+
+	/**
+	 * Writes the table: the number of strings, followed by the sorted hash codes and then the strings
+	 */
+	public void write(OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.writeInt(stableHashcodes.length);
+		for(int stableHashcode : stableHashcodes) {
+			dos.writeInt(stableHashcode);
+		}
+		for(String string : strings) {
+			dos.writeUTF(string);
+		}
+		dos.flush();
+	}
+
+	public int size() {
+		return stableHashcodes.length;
+	}
+
+	@Override
+	public String resolve(int stableHashCode) {
+		return get(stableHashCode);
+	}
+
+	public String get(int stableHashCode) {
+		int index = Arrays.binarySearch(stableHashcodes, stableHashCode);
+		return index >= 0 ? strings[index] : null;
+	}
+
+	/**
+	 * Returns the table as a map, ordered by hash code
+	 */
+	public Map<Integer, String> getStringsByStableHashcode() {
+		Map<Integer, String> stringsByStableHashcode = new LinkedHashMap<>();
+		for(int i = 0; i < stableHashcodes.length; i++) {
+			stringsByStableHashcode.put(stableHashcodes[i], strings[i]);
+		}
+		return Collections.unmodifiableMap(stringsByStableHashcode);
+	}
+
 	/**
 	 * Looks up a stable hash code, to see if there's a known string
 	 */
 	public static String lookup(int stableHashCode) {
-		return INSTANCE.getStringsByStableHashcode().get(stableHashCode);
+		return INSTANCE.get(stableHashCode);
 	}
 }
@@ -1,16 +1,42 @@
 package net.kakoen.valheim.save.decode;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Computes the hash Valheim uses for prefab and property names. Hashes are cached, as the
+ * same names are hashed over and over. The cache is cleared when it holds the maximum number
+ * of names, so hashing arbitrary strings doesn't grow it without limit and names that are in
+ * use get cached again. The cache can be used from several threads.
+ */
 public class StableHashCode {
 	
-	private static final Map<String, Integer> STABLE_HASHCODE_CACHE = new HashMap<>();
+	public static final int MAX_CACHE_SIZE = 16 * 1024;
+	
+	private static final Map<String, Integer> STABLE_HASHCODE_CACHE = new ConcurrentHashMap<>();
+	private static final LongAdder CACHE_HITS = new LongAdder();
+	private static final LongAdder CACHE_MISSES = new LongAdder();
 	
 	public static int getStableHashCode(String str) {
-		if(STABLE_HASHCODE_CACHE.containsKey(str)) {
-			return STABLE_HASHCODE_CACHE.get(str);
+		Integer cached = STABLE_HASHCODE_CACHE.get(str);
+		if(cached != null) {
+			CACHE_HITS.increment();
+			return cached;
+		}
+		CACHE_MISSES.increment();
+		int result = computeStableHashCode(str);
+		if(STABLE_HASHCODE_CACHE.size() >= MAX_CACHE_SIZE) {
+			STABLE_HASHCODE_CACHE.clear();
 		}
+		STABLE_HASHCODE_CACHE.put(str, result);
+		return result;
+	}
+	
+	/**
+	 * Computes the hash without looking it up in or adding it to the cache
+	 */
+	public static int computeStableHashCode(String str) {
 		int num1 = 5381;
 		int num2 = num1;
 		for(int index = 0; index < str.length() && str.charAt(index) != 0; index += 2) {
@@ -21,8 +47,22 @@ public class StableHashCode {
 				break;
 			}
 		}
-		int result = num1 + num2 * 1566083941;
-		STABLE_HASHCODE_CACHE.put(str, result);
-		return result;
+		return num1 + num2 * 1566083941;
+	}
+	
+	public static long getCacheHits() {
+		return CACHE_HITS.sum();
+	}
+	
+	public static long getCacheMisses() {
+		return CACHE_MISSES.sum();
+	}
+	
+	public static int getCacheSize() {
+		return STABLE_HASHCODE_CACHE.size();
+	}
+	
+	public static void clearCache() {
+		STABLE_HASHCODE_CACHE.clear();
 	}
 }
@@ -0,0 +1,119 @@
+package net.kakoen.valheim.save.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares the strings read from packages, keyed on their UTF-8 bytes. When the bytes of a
+ * string were seen before, the string read the first time is returned without copying the
+ * bytes or decoding them again. Can be shared by packages that are read concurrently.
+ * <p>
+ * Only short strings are pooled, as long strings are rarely repeated, and the pool stops
+ * growing once it holds the maximum number of strings.
+ */
+public class StringPool {
+
+	public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+	public static final int MAX_POOLED_LENGTH = 256;
+
+	private final int maxSize;
+	private final ConcurrentHashMap<Key, String> strings = new ConcurrentHashMap<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final ThreadLocal<Key> probes = ThreadLocal.withInitial(Key::new);
+
+	public StringPool() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public StringPool(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the string encoded in the given range of the buffer, without changing the position of the buffer
+	 */
+	public String intern(ByteBuffer buffer, int position, int length) {
+		if(length > MAX_POOLED_LENGTH) {
+			return new String(copy(buffer, position, length), StandardCharsets.UTF_8);
+		}
+		Key probe = probes.get().set(buffer, position, length);
+		String string = strings.get(probe);
+		probe.clear();
+		if(string != null) {
+			return string;
+		}
+		byte[] bytes = copy(buffer, position, length);
+		string = new String(bytes, StandardCharsets.UTF_8);
+		if(size.get() >= maxSize) {
+			return string;
+		}
+		String previous = strings.putIfAbsent(new Key().set(ByteBuffer.wrap(bytes), 0, length), string);
+		if(previous != null) {
+			return previous;
+		}
+		size.incrementAndGet();
+		return string;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	private static byte[] copy(ByteBuffer buffer, int position, int length) {
+		byte[] bytes = new byte[length];
+		buffer.duplicate().position(position).get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * A range of bytes in a buffer. The pool's keys wrap a copy of the bytes, while the probes
+	 * used for lookups refer to the buffer that's being read.
+	 */
+	private static class Key {
+
+		private ByteBuffer buffer;
+		private int position;
+		private int length;
+		private int hash;
+
+		private Key set(ByteBuffer buffer, int position, int length) {
+			this.buffer = buffer;
+			this.position = position;
+			this.length = length;
+			int hash = 1;
+			for(int i = position; i < position + length; i++) {
+				hash = 31 * hash + buffer.get(i);
+			}
+			this.hash = hash;
+			return this;
+		}
+
+		private void clear() {
+			buffer = null;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			if(hash != other.hash || length != other.length) {
+				return false;
+			}
+			for(int i = 0; i < length; i++) {
+				if(buffer.get(position + i) != other.buffer.get(other.position + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -3,7 +3,9 @@ package net.kakoen.valheim.save.parser;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -12,6 +14,8 @@ import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -26,17 +30,81 @@ public class ZPackage implements AutoCloseable {
 	
 	private final static int INITIAL_CAPACITY = 4096;
 	private final static float EXPAND_FACTOR = 1.5f;
+	private final static int COMPRESSION_SEGMENT_SIZE = 16 * 1024;
+	private final static int MAX_DECODE_BUFFER_SIZE = 16 * 1024;
 	
 	private ByteBuffer buffer;
 	
 	private RandomAccessFile inFile;
 	private FileChannel fileChannel;
+	private long fileLength;
+	private int windowSize;
+	private boolean windowed;
+	
+	private int segmentSize;
+	private boolean directSegments;
+	private List<ByteBuffer> segments;
+	private WritableByteChannel sink;
+	/**
+	 * Position of the start of the buffer, when the buffer is a window on a file or the last segment
+	 */
+	private long bufferStart;
+	
+	/**
+	 * When set, strings are read through the pool, see {@link StringPool}
+	 */
+	@Getter
+	@Setter
+	private StringPool stringPool;
+	private char[] decodeBuffer;
 	
 	public ZPackage(File inputFile) throws IOException {
+		this(inputFile, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Maps the file in windows of at most the given size, when it doesn't fit in one. The window
+	 * is moved forward when a value extends past its end, so values are always read from one
+	 * contiguous buffer, and files larger than 2 GB can be read.
+	 */
+	public ZPackage(File inputFile, int windowSize) throws IOException {
 		inFile = new RandomAccessFile(inputFile,"r");
 		fileChannel = inFile.getChannel();
-		buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()).asReadOnlyBuffer();
+		fileLength = fileChannel.size();
+		this.windowSize = windowSize;
+		windowed = fileLength > windowSize;
+		mapWindow(0, 0);
+	}
+	
+	private void mapWindow(long position, int minimumSize) throws IOException {
+		long size = Math.min(fileLength - position, Math.max(windowSize, minimumSize));
+		buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size).asReadOnlyBuffer();
 		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		bufferStart = position;
+	}
+	
+	/**
+	 * Makes sure the next bytes can be read from the buffer, moving the window when needed
+	 */
+	@SneakyThrows
+	private void ensureReadable(int needed) {
+		if(windowed && buffer.remaining() < needed && getLongPosition() < fileLength) {
+			log.debug("Mapping window at {}", getLongPosition());
+			mapWindow(getLongPosition(), needed);
+		}
+	}
+	
+	private byte nextByte() {
+		ensureReadable(1);
+		return buffer.get();
+	}
+	
+	/**
+	 * Returns whether the file is mapped in several windows, in which case the buffer returned by
+	 * {@link #getReadOnlyBuffer()} changes while reading
+	 */
+	public boolean isWindowed() {
+		return windowed;
 	}
 	
 	public ZPackage() {
@@ -49,6 +117,44 @@ public class ZPackage implements AutoCloseable {
 		buffer.order(ByteOrder.LITTLE_ENDIAN);
 	}
 	
+	/**
+	 * Reads from a buffer that's shared with other packages, without changing its position
+	 */
+	public ZPackage(ByteBuffer contents) {
+		buffer = contents.asReadOnlyBuffer();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	private ZPackage(int segmentSize, boolean directSegments, WritableByteChannel sink) {
+		this.segmentSize = segmentSize;
+		this.directSegments = directSegments;
+		this.sink = sink;
+		segments = sink == null ? new ArrayList<>() : null;
+		buffer = allocateSegment(segmentSize);
+	}
+	
+	/**
+	 * Creates a package that's written in segments of the given size. Full segments are kept
+	 * as they are, so written bytes are never copied when the package grows, and it can hold
+	 * more than 2 GB (see {@link #getLongPosition()}).
+	 */
+	public static ZPackage segmented(int segmentSize, boolean direct) {
+		return new ZPackage(segmentSize, direct, null);
+	}
+	
+	/**
+	 * Creates a package that writes each full segment to the channel and then reuses it.
+	 * The bytes in the last segment are written by {@link #flush()}.
+	 */
+	public static ZPackage segmented(WritableByteChannel sink, int segmentSize, boolean direct) {
+		return new ZPackage(segmentSize, direct, sink);
+	}
+	
+	private ByteBuffer allocateSegment(int capacity) {
+		ByteBuffer segment = directSegments ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+		return segment.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
 	private void ensureWritableSpace(int needed) {
 		if(buffer.isReadOnly()) {
 			throw new IllegalStateException("Buffer is read-only");
@@ -56,6 +162,10 @@ public class ZPackage implements AutoCloseable {
 		if (buffer.remaining() >= needed) {
 			return;
 		}
+		if (segmentSize > 0) {
+			nextSegment(needed);
+			return;
+		}
 		int newCapacity = (int) (buffer.capacity() * EXPAND_FACTOR);
 		while (newCapacity < (buffer.capacity() + needed)) {
 			newCapacity *= EXPAND_FACTOR;
@@ -71,6 +181,7 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public int readInt32() {
+		ensureReadable(4);
 		return buffer.getInt();
 	}
 	
@@ -80,6 +191,7 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public short readShort() {
+		ensureReadable(2);
 		return buffer.getShort();
 	}
 	
@@ -89,6 +201,7 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public double readDouble() {
+		ensureReadable(8);
 		return buffer.getDouble();
 	}
 	
@@ -98,6 +211,7 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public long readLong() {
+		ensureReadable(8);
 		return buffer.getLong();
 	}
 	
@@ -109,7 +223,7 @@ public class ZPackage implements AutoCloseable {
 	public long readUInt() {
 		// Similar to readUShort, we now read an int and convert it to a long
 		// This is because Java does not have an unsigned int type
-		return Integer.toUnsignedLong(buffer.getInt());
+		return Integer.toUnsignedLong(readInt32());
 	}
 	
 	public void writeUInt(long value) {
@@ -123,17 +237,79 @@ public class ZPackage implements AutoCloseable {
 		writeInt32(toWrite);
 	}
 	
+	@SneakyThrows
+	private void nextSegment(int needed) {
+		ByteBuffer full = buffer.flip();
+		bufferStart += full.remaining();
+		if(sink != null) {
+			writeFully(sink, full);
+			buffer = needed <= full.capacity() ? full.clear() : allocateSegment(needed);
+		} else {
+			segments.add(full);
+			buffer = allocateSegment(Math.max(segmentSize, needed));
+		}
+	}
+	
+	/**
+	 * Writes the bytes of a segmented package that haven't been written to its channel yet
+	 */
+	public void flush() throws IOException {
+		if(sink == null) {
+			throw new IllegalStateException("Package isn't written to a channel");
+		}
+		buffer.flip();
+		bufferStart += buffer.remaining();
+		writeFully(sink, buffer);
+		buffer.clear();
+	}
+	
+	private static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+		while(bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+	
 	public int getPosition() {
-		return buffer.position();
+		return bufferStart > 0 ? Math.toIntExact(getLongPosition()) : buffer.position();
+	}
+	
+	/**
+	 * Returns the position including all segments or windows, which can exceed 2 GB
+	 */
+	public long getLongPosition() {
+		return bufferStart + buffer.position();
 	}
 	
 	public void setPosition(int position) {
-		buffer.position(position);
+		setPosition((long) position);
+	}
+	
+	@SneakyThrows
+	public void setPosition(long position) {
+		if(segmentSize > 0) {
+			throw new UnsupportedOperationException("Segmented packages can only be appended to");
+		}
+		if(windowed && (position < bufferStart || position > bufferStart + buffer.limit())) {
+			mapWindow(position, 0);
+		}
+		buffer.position((int) (position - bufferStart));
+	}
+	
+	/**
+	 * Returns the position within the buffer returned by {@link #getReadOnlyBuffer()}
+	 */
+	public int getBufferPosition() {
+		return buffer.position();
+	}
+	
+	public void skip(int count) {
+		setPosition(getLongPosition() + count);
 	}
 	
 	public byte[] readBytes(int count) {
 		byte[] ret = new byte[count];
 		
+		ensureReadable(count);
 		buffer.get(ret);
 		
 		return ret;
@@ -149,6 +325,67 @@ public class ZPackage implements AutoCloseable {
 		buffer.put(bytes, start, count);
 	}
 	
+	public void writeBytes(ByteBuffer bytes) {
+		ensureWritableSpace(bytes.remaining());
+		buffer.put(bytes);
+	}
+	
+	public void writeBytes(ByteBuffer source, int position, int count) {
+		ByteBuffer bytes = source.duplicate();
+		bytes.limit(position + count);
+		bytes.position(position);
+		writeBytes(bytes);
+	}
+	
+	/**
+	 * Returns the buffer backing a read-only package, so ranges of it can be referred to
+	 * after reading without copying them. The returned buffer is shared: use
+	 * {@link ByteBuffer#duplicate()} before changing its position. Returns null for
+	 * writable packages, as their buffer is replaced when it grows. For files mapped in
+	 * windows, this is the current window (see {@link #getBufferPosition()}).
+	 */
+	public ByteBuffer getReadOnlyBuffer() {
+		return buffer.isReadOnly() ? buffer : null;
+	}
+	
+	/**
+	 * Returns a read-only view on the bytes written so far, without copying them
+	 */
+	public ByteBuffer getWrittenBytes() {
+		if(bufferStart > 0) {
+			throw new IllegalStateException("Package consists of several segments, use getWrittenSegments()");
+		}
+		return slice(0, buffer.position());
+	}
+	
+	/**
+	 * Returns read-only views on the bytes written so far in order, one per segment, without copying them
+	 */
+	public ByteBuffer[] getWrittenSegments() {
+		if(sink != null) {
+			throw new IllegalStateException("Written bytes have been passed on to the channel");
+		}
+		if(segments == null) {
+			return new ByteBuffer[] { getWrittenBytes() };
+		}
+		ByteBuffer[] written = new ByteBuffer[segments.size() + 1];
+		for(int i = 0; i < segments.size(); i++) {
+			written[i] = segments.get(i).asReadOnlyBuffer().order(buffer.order());
+		}
+		written[segments.size()] = slice(0, buffer.position());
+		return written;
+	}
+	
+	/**
+	 * Returns a read-only view on a range of the current buffer, without copying the bytes
+	 */
+	public ByteBuffer slice(int position, int count) {
+		ByteBuffer slice = buffer.asReadOnlyBuffer();
+		slice.limit(position + count);
+		slice.position(position);
+		return slice.slice().order(buffer.order());
+	}
+	
 	/**
 	 * Supplies a method of reading an object with a prefixed size.
 	 * Newer version of a Valheim save might add new attributes, and
@@ -156,22 +393,22 @@ public class ZPackage implements AutoCloseable {
 	 * versions that are not supported yet.
 	 */
 	public <R> R readFixedSizeObject(long count, ZPackageReaderFunction<ZPackage, R> reader) throws ValheimArchiveUnsupportedVersionException {
-		int position = getPosition();
-		if(position + count > buffer.limit()) {
+		long position = getLongPosition();
+		if(position + count > getLength()) {
 			throw new IllegalStateException("Failed to read fixed size object at " + position + ", end of object is past end of file");
 		}
 		try {
 			return reader.apply(this);
 		} finally {
-			if(getPosition() != position + count) {
-				log.warn("Object at {} with size {} was not fully read, {} bytes remain", position, count, (position + count) - getPosition());
+			if(getLongPosition() != position + count) {
+				log.warn("Object at {} with size {} was not fully read, {} bytes remain", position, count, (position + count) - getLongPosition());
 				log.warn("At " + getFirstStackTraceElementOutsideClass(new Throwable().getStackTrace()));
 			}
-			if(getPosition() > position + count) {
-				log.warn("Fixed size object at {} was read past expected size {}, {} extra bytes were read", position, count, getPosition() - position - count);
+			if(getLongPosition() > position + count) {
+				log.warn("Fixed size object at {} was read past expected size {}, {} extra bytes were read", position, count, getLongPosition() - position - count);
 				log.warn("At " + getFirstStackTraceElementOutsideClass(new Throwable().getStackTrace()));
 			}
-			setPosition((int) (position + count));
+			setPosition(position + count);
 		}
 	}
 	
@@ -188,36 +425,77 @@ public class ZPackage implements AutoCloseable {
 		return readFixedSizeObject(readInt32(), reader);
 	}
 	
+	/**
+	 * Writes an object prefixed by its length. The object is written in place, and the
+	 * length is filled in afterwards.
+	 */
 	public void writeLengthPrefixedObject(Consumer<ZPackage> writer) {
-		ZPackage zPackage = new ZPackage();
-		writer.accept(zPackage);
-		ensureWritableSpace(4 + zPackage.getPosition());
-		writeInt32(zPackage.getPosition());
-		zPackage.writeTo(this);
+		long lengthPosition = getLongPosition();
+		writeInt32(0); //Patched after writing the object
+		long start = getLongPosition();
+		writer.accept(this);
+		patchInt32(lengthPosition, Math.toIntExact(getLongPosition() - start));
 	}
 	
+	/**
+	 * Writes an object prefixed by its length, followed by the SHA-512 hash of the object.
+	 * The hash is computed over the written bytes, without copying them.
+	 */
 	public void writeLengthPrefixedHashedObject(Consumer<ZPackage> writer) {
-		ZPackage zPackage = new ZPackage();
-		writer.accept(zPackage);
-		ensureWritableSpace(4 + zPackage.getPosition());
-		writeInt32(zPackage.getPosition());
+		long lengthPosition = getLongPosition();
+		writeInt32(0); //Patched after writing the object
+		long start = getLongPosition();
+		writer.accept(this);
+		long end = getLongPosition();
+		patchInt32(lengthPosition, Math.toIntExact(end - start));
 		byte[] sha512Hash = new byte[64];
 		try {
-			sha512Hash = MessageDigest.getInstance("SHA-512").digest(zPackage.getBufferAsBytes());
+			MessageDigest digest = MessageDigest.getInstance("SHA-512");
+			forEachWrittenRange(start, end, digest::update);
+			sha512Hash = digest.digest();
 		} catch(NoSuchAlgorithmException e) {
 			log.error("Failed to compute SHA-512 hash", e);
 		}
-		zPackage.writeTo(this);
 		writeLengthPrefixedByteArray(sha512Hash);
 	}
 	
-	private void writeTo(ZPackage zPackage) {
-		int size = inFile != null ? buffer.capacity() : buffer.position();
-		zPackage.writeBytes(buffer.array(), 0, size);
+	/**
+	 * Overwrites an int that was written earlier at the given position
+	 */
+	public void patchInt32(long position, int value) {
+		long segmentStart = bufferStart;
+		if(position >= segmentStart) {
+			buffer.putInt((int) (position - segmentStart), value);
+			return;
+		}
+		if(segments == null) {
+			throw new IllegalStateException("Position " + position + " has already been written to the channel");
+		}
+		for(int i = segments.size() - 1; i >= 0; i--) {
+			segmentStart -= segments.get(i).limit();
+			if(position >= segmentStart) {
+				segments.get(i).putInt((int) (position - segmentStart), value);
+				return;
+			}
+		}
+	}
+	
+	private void forEachWrittenRange(long from, long to, Consumer<ByteBuffer> consumer) {
+		long segmentStart = 0;
+		for(ByteBuffer segment : getWrittenSegments()) {
+			long segmentEnd = segmentStart + segment.remaining();
+			if(segmentEnd > from && segmentStart < to) {
+				ByteBuffer range = segment.duplicate();
+				range.limit((int) (Math.min(to, segmentEnd) - segmentStart));
+				range.position((int) (Math.max(from, segmentStart) - segmentStart));
+				consumer.accept(range);
+			}
+			segmentStart = segmentEnd;
+		}
 	}
 	
 	public boolean readBool() {
-		return buffer.get() > 0;
+		return nextByte() > 0;
 	}
 	
 	public void writeBool(boolean value) {
@@ -225,7 +503,7 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public byte readByte() {
-		return buffer.get();
+		return nextByte();
 	}
 	
 	public void writeByte(byte value) {
@@ -263,6 +541,7 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public float readSingle() {
+		ensureReadable(4);
 		return buffer.getFloat();
 	}
 	
@@ -293,8 +572,8 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public int readChar() {
-		int startPosition = getPosition();
-		int first = buffer.get();
+		long startPosition = getLongPosition();
+		int first = nextByte();
 		int second = 0;
 		int third = 0;
 		int fourth = 0;
@@ -303,20 +582,20 @@ public class ZPackage implements AutoCloseable {
 		}
 		if((first & 0xE0) == 0xC0) { //110xxxxx 10xxxxxx
 			first = first & 0x1F;
-			second = buffer.get() & 0x3F;
+			second = nextByte() & 0x3F;
 			return (first << 6) | second;
 		}
 		if((first & 0xF0) == 0xE0) { //1110xxxx 10xxxxxx 10xxxxxx
 			first = first & 0x0F;
-			second = buffer.get() & 0x3F;
-			third = buffer.get() & 0x3F;
+			second = nextByte() & 0x3F;
+			third = nextByte() & 0x3F;
 			return (first << 12) | (second << 6) | third;
 		}
 		if((first & 0xF0) == 0xF0) { //11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
 			first = first & 0x07;
-			second = buffer.get() & 0x3F;
-			third = buffer.get() & 0x3F;
-			fourth = buffer.get() & 0x3F;
+			second = nextByte() & 0x3F;
+			third = nextByte() & 0x3F;
+			fourth = nextByte() & 0x3F;
 			return (first << 18) | (second << 12) | (third << 6) | fourth;
 		}
 		throw new IllegalStateException("Unable to read char at position " + startPosition + ", not a valid UTF-8 character");
@@ -349,60 +628,118 @@ public class ZPackage implements AutoCloseable {
 	}
 	
 	public String readString() {
-		int startPosition = getPosition();
+		long startPosition = getLongPosition();
 		int stringLength = readStringLength();
-		if(getPosition() + stringLength > buffer.limit()) {
+		if(getLongPosition() + stringLength > getLength()) {
 			throw new IllegalStateException("Reading string at " + startPosition + " with length " + stringLength + " would exceed the end of the file");
 		}
-		return new String(readBytes(stringLength), StandardCharsets.UTF_8);
+		ensureReadable(stringLength);
+		int position = buffer.position();
+		buffer.position(position + stringLength);
+		if(stringPool != null) {
+			return stringPool.intern(buffer, position, stringLength);
+		}
+		return decodeString(position, stringLength);
 	}
 	
+	/**
+	 * Decodes a string straight from the buffer. Strings that only contain ASCII characters,
+	 * which are most strings in a save, are decoded without copying their bytes first.
+	 */
+	private String decodeString(int position, int length) {
+		if(buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+		}
+		if(length <= MAX_DECODE_BUFFER_SIZE) {
+			char[] chars = decodeBuffer(length);
+			int i = 0;
+			while(i < length) {
+				byte b = buffer.get(position + i);
+				if(b < 0) {
+					break;
+				}
+				chars[i++] = (char) b;
+			}
+			if(i == length) {
+				return new String(chars, 0, length);
+			}
+		}
+		byte[] bytes = new byte[length];
+		buffer.duplicate().position(position).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private char[] decodeBuffer(int length) {
+		if(decodeBuffer == null || decodeBuffer.length < length) {
+			decodeBuffer = new char[Math.max(length, 64)];
+		}
+		return decodeBuffer;
+	}
+	
+	/**
+	 * Writes a string as UTF-8. Strings that only contain ASCII characters are written
+	 * without encoding them into a separate array first.
+	 */
 	public void writeString(String value) {
-		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
-		writeStringLength(bytes.length);
-		writeBytes(bytes);
+		int length = value.length();
+		if(length > MAX_DECODE_BUFFER_SIZE || !isAscii(value)) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeStringLength(bytes.length);
+			writeBytes(bytes);
+			return;
+		}
+		ensureWritableSpace(length + 5);
+		writeStringLength(length);
+		for(int i = 0; i < length; i++) {
+			buffer.put((byte) value.charAt(i));
+		}
 	}
 	
+	private static boolean isAscii(String value) {
+		for(int i = 0; i < value.length(); i++) {
+			if(value.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads a string length, encoded in groups of 7 bits with the least significant group first.
+	 * The highest bit of each byte is set when another group follows.
+	 */
 	public int readStringLength() {
-		int startPosition = getPosition();
-		Stack<Integer> lengthStack = new Stack<>();
-		
-		while(true) {
-			byte length = buffer.get();
-			lengthStack.push(length & 0x7F);
-			if(length >= 0) {
-				break;
+		byte first = nextByte();
+		if(first >= 0) {
+			return first;
+		}
+		int result = first & 0x7F;
+		for(int shift = 7; ; shift += 7) {
+			byte next = nextByte();
+			result |= (next & 0x7F) << shift;
+			if(next >= 0) {
+				return result;
 			}
-			if(lengthStack.size() > 4) {
-				throw new IllegalStateException("String length cannot be read at position " + startPosition);
+			if(shift == 28) {
+				throw new IllegalStateException("String length cannot be read at position " + (getLongPosition() - 5));
 			}
 		}
-		
-		int result = 0;
-		while(lengthStack.size() > 0) {
-			result = (result << 7) + lengthStack.pop();
-		}
-		return result;
 	}
 	
 	public void writeStringLength(int value) {
-		if(value == 0) {
-			writeUByte((short)0);
+		if(value < 0) {
+			throw new IllegalStateException("String length " + value + " cannot be negative");
+		}
+		if(value <= 0x7F) {
+			writeByte((byte) value);
 			return;
 		}
-		
-		int length = value;
-		Stack<Short> encodedLength = new Stack<>();
-		
-		while(length > 0) {
-			short l = (short) (length & 0x7F);
-			length = length >> 7;
-			if (length > 0) {
-				l = (short) (l | 0x80);
-			}
-			encodedLength.push(l);
+		ensureWritableSpace(5);
+		while(value > 0x7F) {
+			buffer.put((byte) (value | 0x80));
+			value >>>= 7;
 		}
-		encodedLength.forEach(this::writeUByte);
+		buffer.put((byte) value);
 	}
 	
 	public byte[] readLengthPrefixedByteArray() {
@@ -428,7 +765,24 @@ public class ZPackage implements AutoCloseable {
 		strings.forEach(this::writeString);
 	}
 	
+	/**
+	 * Returns the number of bytes that can be read, which is the size of the file or buffer that's read from
+	 */
+	public long getLength() {
+		return inFile != null ? fileLength : buffer.limit();
+	}
+	
 	public byte[] getBufferAsBytes() {
+		if(windowed) {
+			throw new IllegalStateException("File is mapped in several windows, and can't be returned as one array");
+		}
+		if(segmentSize > 0) {
+			ByteBuffer dest = ByteBuffer.allocate(getPosition());
+			for(ByteBuffer segment : getWrittenSegments()) {
+				dest.put(segment);
+			}
+			return dest.array();
+		}
 		int size = inFile != null ? buffer.capacity() : getPosition();
 		byte[] dest = new byte[size];
 		buffer.position(0);
@@ -439,8 +793,8 @@ public class ZPackage implements AutoCloseable {
 	@Override
 	public void close() throws IOException {
 		if(inFile != null) {
-			if(getPosition() < buffer.limit()) {
-				log.warn("File not fully read, {} bytes remain", buffer.limit() - getPosition());
+			if(getLongPosition() < fileLength) {
+				log.warn("File not fully read, {} bytes remain", fileLength - getLongPosition());
 			}
 			inFile.close();
 		}
@@ -454,6 +808,11 @@ public class ZPackage implements AutoCloseable {
 	
 	public void writeTo(File file) throws IOException {
 		try(FileOutputStream fileOutputStream = new FileOutputStream(file)) {
+			if(segmentSize > 0) {
+				writeTo(fileOutputStream.getChannel());
+				log.info("Wrote {} bytes to {}", getLongPosition(), file.getAbsolutePath());
+				return;
+			}
 			int size = inFile != null ? buffer.capacity() : buffer.position();
 			fileOutputStream.write(buffer.array(), 0, size);
 			log.info("Wrote {} bytes to {}", size, file.getAbsolutePath());
@@ -461,9 +820,26 @@ public class ZPackage implements AutoCloseable {
 	}
 
 	public void writeTo(OutputStream os) throws IOException {
+		if(segmentSize > 0) {
+			writeTo(Channels.newChannel(os));
+			return;
+		}
 		int size = inFile != null ? buffer.capacity() : buffer.position();
 		os.write(buffer.array(), 0, size);
 	}
+	
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		if(segmentSize > 0) {
+			for(ByteBuffer segment : getWrittenSegments()) {
+				writeFully(channel, segment);
+			}
+			return;
+		}
+		if(windowed) {
+			throw new IllegalStateException("File is mapped in several windows, and can't be written as one buffer");
+		}
+		writeFully(channel, slice(0, inFile != null ? buffer.capacity() : buffer.position()));
+	}
 
 	@SneakyThrows
 	public ZPackage readCompressedPackage() {
@@ -471,17 +847,35 @@ public class ZPackage implements AutoCloseable {
 		return new ZPackage(new GZIPInputStream(new ByteArrayInputStream(compressedPackageData)).readAllBytes());
     }
 
+	/**
+	 * Writes a gzip compressed package prefixed by its length. The package is compressed
+	 * while it's being built, straight into this package.
+	 */
 	@SneakyThrows
 	public void writeCompressedPackage(Consumer<ZPackage> packageBuilder) {
-		ZPackage newPackage = new ZPackage();
-		packageBuilder.accept(newPackage);
-
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		try(GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-			newPackage.writeTo(gzos);
-		}
-		baos.close();
-		writeLengthPrefixedByteArray(baos.toByteArray());
+		long lengthPosition = getLongPosition();
+		writeInt32(0); //Patched after compressing the package
+		long start = getLongPosition();
+		try(GZIPOutputStream gzos = new GZIPOutputStream(asOutputStream())) {
+			ZPackage newPackage = segmented(Channels.newChannel(gzos), COMPRESSION_SEGMENT_SIZE, false);
+			packageBuilder.accept(newPackage);
+			newPackage.flush();
+		}
+		patchInt32(lengthPosition, Math.toIntExact(getLongPosition() - start));
+	}
+	
+	private OutputStream asOutputStream() {
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+				writeByte((byte) b);
+			}
+			
+			@Override
+			public void write(byte[] bytes, int offset, int length) {
+				writeBytes(bytes, offset, length);
+			}
+		};
 	}
 
 	public Map<String, String> readMap() {
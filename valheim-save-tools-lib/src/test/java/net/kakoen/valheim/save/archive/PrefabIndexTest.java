@@ -0,0 +1,61 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.PrefabIndex;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.decode.StableHashCode;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class PrefabIndexTest {
+
+	@Test
+	public void prefabIndex_shouldFindSameZdosAsScanning() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld32.db"), ValheimSaveReaderHints.builder().build());
+		List<Zdo> zdoList = archive.getZdoList();
+		PrefabIndex prefabIndex = archive.getPrefabIndex();
+		Assertions.assertSame(prefabIndex, archive.getPrefabIndex());
+
+		int[] prefabs = prefabIndex.getPrefabs();
+		Assertions.assertEquals(zdoList.stream().map(Zdo::getPrefab).distinct().count(), prefabs.length);
+		int total = 0;
+		for(int prefab : prefabs) {
+			List<Zdo> expected = zdoList.stream().filter(zdo -> zdo.getPrefab() == prefab).collect(Collectors.toList());
+			List<Zdo> actual = prefabIndex.getZdos(prefab);
+			Assertions.assertEquals(expected.size(), prefabIndex.getZdoCount(prefab));
+			for(int i = 0; i < expected.size(); i++) {
+				Assertions.assertSame(expected.get(i), actual.get(i));
+			}
+			List<Integer> indices = new ArrayList<>();
+			prefabIndex.forEachIndex(prefab, indices::add);
+			for(int i = 0; i < indices.size(); i++) {
+				Assertions.assertSame(expected.get(i), zdoList.get(indices.get(i)));
+			}
+			total += actual.size();
+		}
+		Assertions.assertEquals(zdoList.size(), total);
+		Assertions.assertEquals(prefabIndex.getZdos(StableHashCode.getStableHashCode("Rock_4")).size(), prefabIndex.getZdos("Rock_4").size());
+		Assertions.assertTrue(prefabIndex.getZdos("NoSuchPrefab").isEmpty());
+	}
+
+	@Test
+	public void prefabIndex_shouldBeRebuilt_whenPrefabChangesInPlace() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld32.db"), ValheimSaveReaderHints.builder().build());
+		PrefabIndex prefabIndex = archive.getPrefabIndex();
+		Zdo zdo = archive.getZdoList().get(0);
+		int prefab = StableHashCode.getStableHashCode("NoSuchPrefab");
+		zdo.setPrefab(prefab);
+
+		Assertions.assertFalse(prefabIndex.isCurrent(archive.getZdoList()));
+		Assertions.assertNotSame(prefabIndex, archive.getPrefabIndex());
+		Assertions.assertSame(zdo, archive.getPrefabIndex().getZdos(prefab).get(0));
+	}
+}
@@ -0,0 +1,97 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.SectorIndex;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+import net.kakoen.valheim.save.struct.Vector2s;
+import net.kakoen.valheim.save.struct.Vector3;
+
+public class SectorIndexTest {
+
+	@Test
+	public void sectorIndex_shouldFindSameZdosAsScanning() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		List<Zdo> zdoList = archive.getZdoList();
+		SectorIndex sectorIndex = archive.getSectorIndex();
+		Assertions.assertSame(sectorIndex, archive.getSectorIndex());
+		Assertions.assertEquals(zdoList.size(), sectorIndex.size());
+
+		List<Vector2s> sectors = zdoList.stream().map(Zdo::getSector).distinct().collect(Collectors.toList());
+		Assertions.assertEquals(sectors.size(), sectorIndex.getSectorCount());
+		Assertions.assertTrue(sectorIndex.getSectors().containsAll(sectors));
+		for(Vector2s sector : sectors) {
+			assertSameZdos(zdoList.stream().filter(zdo -> zdo.getSector().equals(sector)).collect(Collectors.toList()), sectorIndex.getZdos(sector));
+		}
+		Assertions.assertTrue(sectorIndex.getZdos(Short.MAX_VALUE, Short.MIN_VALUE).isEmpty());
+
+		Vector2s sector = sectors.get(sectors.size() / 2);
+		assertSameZdos(zdoList.stream()
+						.filter(zdo -> Math.abs(zdo.getSector().getX() - sector.getX()) <= 1 && Math.abs(zdo.getSector().getY() - sector.getY()) <= 1)
+						.collect(Collectors.toList()),
+				sectorIndex.getZdosInSectors(sector.getX() - 1, sector.getY() - 1, sector.getX() + 1, sector.getY() + 1));
+
+		Vector3 center = sectorIndex.getZdos(sector).get(0).getPosition();
+		assertSameZdos(zdoList.stream()
+						.filter(zdo -> distanceSquared(zdo.getPosition(), center) <= 100 * 100)
+						.collect(Collectors.toList()),
+				sectorIndex.getZdosInRadius(center, 100));
+	}
+
+	@Test
+	public void sectorIndex_shouldBeRebuilt_whenZdoListChanges() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		SectorIndex sectorIndex = archive.getSectorIndex();
+		archive.getZdoList().remove(0);
+		Assertions.assertNotSame(sectorIndex, archive.getSectorIndex());
+		Assertions.assertEquals(archive.getZdoList().size(), archive.getSectorIndex().size());
+
+		sectorIndex = archive.getSectorIndex();
+		archive.setZdoList(new ArrayList<>(archive.getZdoList()));
+		Assertions.assertNotSame(sectorIndex, archive.getSectorIndex());
+	}
+
+	@Test
+	public void sectorIndex_shouldBeRebuilt_whenZdosChangeInPlace() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		List<Zdo> zdoList = archive.getZdoList();
+		SectorIndex sectorIndex = archive.getSectorIndex();
+		Assertions.assertSame(sectorIndex, archive.getSectorIndex());
+
+		Zdo moved = zdoList.get(0);
+		Vector2s sector = new Vector2s((short) (moved.getSector().getX() + 100), moved.getSector().getY());
+		moved.setSector(sector);
+		Assertions.assertNotSame(sectorIndex, archive.getSectorIndex());
+		assertSameZdos(List.of(moved), archive.getSectorIndex().getZdos(sector));
+
+		sectorIndex = archive.getSectorIndex();
+		Zdo removed = zdoList.get(1);
+		zdoList.removeIf(zdo -> zdo == removed);
+		zdoList.add(moved);
+		Assertions.assertNotSame(sectorIndex, archive.getSectorIndex());
+		Assertions.assertEquals(2, archive.getSectorIndex().getZdoCount(sector));
+		Assertions.assertTrue(archive.getSectorIndex().isCurrent(zdoList));
+	}
+
+	private static void assertSameZdos(List<Zdo> expected, List<Zdo> actual) {
+		Assertions.assertEquals(expected.size(), actual.size());
+		for(Zdo zdo : expected) {
+			Assertions.assertTrue(actual.stream().anyMatch(other -> other == zdo));
+		}
+	}
+
+	private static float distanceSquared(Vector3 a, Vector3 b) {
+		float dx = a.getX() - b.getX();
+		float dz = a.getZ() - b.getZ();
+		return dx * dx + dz * dz;
+	}
+}
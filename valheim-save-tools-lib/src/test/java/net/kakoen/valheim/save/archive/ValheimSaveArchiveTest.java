@@ -2,13 +2,28 @@ package net.kakoen.valheim.save.archive;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
 import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.PrefabLocation;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
+import net.kakoen.valheim.save.decode.StableHashCode;
 import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
 
 @Slf4j
@@ -35,4 +50,300 @@ public class ValheimSaveArchiveTest {
 		AssertionHelper.assertZPackageEqual(inFile, outFile);
 	}
 	
+	@Test
+	public void valheimSaveArchive_shouldCopyUnmodifiedZdos_whenRetainingZdoBytes() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld34.db");
+		ValheimSaveArchive valheimSaveArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().retainZdoBytes(true).build());
+		Assertions.assertTrue(valheimSaveArchive.getZdoList().stream().allMatch(zdo -> zdo.getSource() != null));
+		File outFile = File.createTempFile("out", ".db");
+		valheimSaveArchive.save(outFile);
+		AssertionHelper.assertZPackageEqual(inFile, outFile);
+		
+		Zdo modifiedZdo = valheimSaveArchive.getZdoList().get(1);
+		modifiedZdo.setPersistent(!modifiedZdo.isPersistent());
+		Assertions.assertTrue(modifiedZdo.isModified());
+		Assertions.assertNull(modifiedZdo.getSource());
+		valheimSaveArchive.save(outFile);
+		
+		ValheimSaveArchive expectedArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+		Zdo expectedZdo = expectedArchive.getZdoList().get(1);
+		expectedZdo.setPersistent(!expectedZdo.isPersistent());
+		File expectedFile = File.createTempFile("expected", ".db");
+		expectedArchive.save(expectedFile);
+		AssertionHelper.assertZPackageEqual(expectedFile, outFile);
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldDecodePropertiesOnDemand_whenLazy() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive eagerArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).build());
+		ValheimSaveArchive lazyArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).lazyZdoProperties(true).build());
+		
+		for(int i = 0; i < eagerArchive.getZdoList().size(); i++) {
+			Zdo eager = eagerArchive.getZdoList().get(i);
+			Zdo lazy = lazyArchive.getZdoList().get(i);
+			Assertions.assertEquals(eager.hasProperty("creator"), lazy.hasProperty("creator"));
+			Assertions.assertEquals(eager.hasProperty("health"), lazy.hasProperty("health"));
+		}
+		
+		for(int i = 0; i < eagerArchive.getZdoList().size(); i++) {
+			Zdo lazy = lazyArchive.getZdoList().get(i);
+			boolean pending = lazy.getSource() != null;
+			Assertions.assertEquals(eagerArchive.getZdoList().get(i).getIntsByName(), lazy.getIntsByName());
+			Assertions.assertEquals(eagerArchive.getZdoList().get(i).getStrings(), lazy.getStrings());
+			if(pending) {
+				Assertions.assertNull(lazy.getSource());
+			}
+		}
+		
+		File eagerFile = File.createTempFile("eager", ".db");
+		eagerArchive.save(eagerFile);
+		File lazyFile = File.createTempFile("lazy", ".db");
+		lazyArchive.save(lazyFile);
+		AssertionHelper.assertZPackageEqual(eagerFile, lazyFile);
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldDecodePropertiesOnce_whenLazyZdosAreReadConcurrently() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive eagerArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+		ValheimSaveArchive lazyArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().lazyZdoProperties(true).build());
+		
+		IntStream.range(0, lazyArchive.getZdoList().size() * 8).parallel().forEach(i -> {
+			int index = i % lazyArchive.getZdoList().size();
+			Zdo lazy = lazyArchive.getZdoList().get(index);
+			Zdo eager = eagerArchive.getZdoList().get(index);
+			Assertions.assertEquals(eager.hasProperty("health"), lazy.hasProperty("health"));
+			Assertions.assertEquals(eager.getInts(), lazy.getInts());
+			Assertions.assertEquals(eager.getStrings(), lazy.getStrings());
+		});
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldSaveChangesMadeInPlace_whenRetainingZdoBytes() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File currentFile = File.createTempFile("current", ".db");
+		currentFile.deleteOnExit();
+		new ValheimSaveArchive(new File("src/test/resources/TestWorld32.db"), ValheimSaveReaderHints.builder().build()).save(currentFile);
+		ValheimSaveArchive archive = new ValheimSaveArchive(currentFile, ValheimSaveReaderHints.builder().retainZdoBytes(true).lazyZdoProperties(true).build());
+		
+		int intsIndex = -1;
+		for(int i = 0; i < archive.getZdoList().size() && intsIndex < 0; i++) {
+			if(archive.getZdoList().get(i).getInts() != null && !archive.getZdoList().get(i).getInts().isEmpty()) {
+				intsIndex = i;
+			}
+		}
+		Zdo intsZdo = archive.getZdoList().get(intsIndex);
+		Assertions.assertTrue(intsZdo.isCopyable());
+		int key = intsZdo.getInts().keySet().iterator().next();
+		int value = intsZdo.getInts().get(key) + 1;
+		intsZdo.getInts().put(key, value);
+		Assertions.assertFalse(intsZdo.isCopyable());
+		
+		int positionIndex = intsIndex == 0 ? 1 : 0;
+		Zdo positionZdo = archive.getZdoList().get(positionIndex);
+		Assertions.assertTrue(positionZdo.isCopyable());
+		float y = positionZdo.getPosition().getY() + 10;
+		positionZdo.getPosition().setY(y);
+		Assertions.assertFalse(positionZdo.isCopyable());
+		
+		File outFile = File.createTempFile("inPlace", ".db");
+		outFile.deleteOnExit();
+		archive.save(outFile);
+		ValheimSaveArchive saved = new ValheimSaveArchive(outFile, ValheimSaveReaderHints.builder().build());
+		Assertions.assertEquals(Integer.valueOf(value), saved.getZdoList().get(intsIndex).getInts().get(key));
+		Assertions.assertEquals(y, saved.getZdoList().get(positionIndex).getPosition().getY());
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldResolveNamesOnAccess_whenResolvingNames() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive hashedArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+		ValheimSaveArchive resolvedArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).build());
+		
+		ObjectMapper objectMapper = new ObjectMapper();
+		Zdo[] exported = objectMapper.readValue(objectMapper.writeValueAsString(resolvedArchive.getZdoList()), Zdo[].class);
+		for(int i = 0; i < hashedArchive.getZdoList().size(); i++) {
+			Zdo hashed = hashedArchive.getZdoList().get(i);
+			Zdo resolved = resolvedArchive.getZdoList().get(i);
+			Assertions.assertNull(hashed.getPrefabName());
+			Assertions.assertNull(hashed.getIntsByName());
+			Assertions.assertEquals(ReverseHashcodeLookup.lookup(hashed.getPrefab()), resolved.getPrefabName());
+			Assertions.assertEquals(hashed.getFloats(), resolved.getFloats());
+			Assertions.assertEquals(hashed.getInts(), resolved.getInts());
+			Assertions.assertEquals(hashed.getStrings(), resolved.getStrings());
+			
+			Assertions.assertEquals(resolved.getPrefabName(), exported[i].getPrefabName());
+			Assertions.assertEquals(hashed.getFloats(), byHash(exported[i].getFloats(), exported[i].getFloatsByName()));
+			Assertions.assertEquals(hashed.getInts(), byHash(exported[i].getInts(), exported[i].getIntsByName()));
+			Assertions.assertEquals(hashed.getStrings(), byHash(exported[i].getStrings(), exported[i].getStringsByName()));
+		}
+	}
+	
+	private static <T> Map<Integer, T> byHash(Map<Integer, T> valuesByHash, Map<String, T> valuesByName) {
+		if(valuesByHash == null && valuesByName == null) {
+			return null;
+		}
+		Map<Integer, T> result = new HashMap<>();
+		if(valuesByHash != null) {
+			result.putAll(valuesByHash);
+		}
+		if(valuesByName != null) {
+			valuesByName.forEach((name, value) -> result.put(StableHashCode.getStableHashCode(name), value));
+		}
+		return result;
+	}
+	
+	@Test
+	public void zdo_shouldReplacePropertiesByHash_whenSettingPropertiesByName() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).build());
+		Zdo zdo = archive.getZdoList().stream()
+				.filter(candidate -> candidate.getIntsByName() != null && !candidate.getIntsByName().isEmpty())
+				.findFirst()
+				.orElseThrow();
+		Map<String, Integer> intsByName = zdo.getIntsByName();
+		String name = intsByName.keySet().iterator().next();
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> intsByName.put(name, 1));
+		
+		int count = zdo.getInts().size();
+		Map<String, Integer> changed = new HashMap<>(intsByName);
+		changed.put(name, intsByName.get(name) + 1);
+		zdo.setIntsByName(changed);
+		Assertions.assertFalse(zdo.getInts().containsKey(StableHashCode.getStableHashCode(name)));
+		
+		File outFile = File.createTempFile("named", ".db");
+		outFile.deleteOnExit();
+		archive.save(outFile);
+		ValheimSaveArchive saved = new ValheimSaveArchive(outFile, ValheimSaveReaderHints.builder().build());
+		Map<Integer, Integer> savedInts = saved.getZdoList().get(archive.getZdoList().indexOf(zdo)).getInts();
+		Assertions.assertEquals(count, savedInts.size());
+		Assertions.assertEquals(Integer.valueOf(intsByName.get(name) + 1), savedInts.get(StableHashCode.getStableHashCode(name)));
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldLoadSameZdos_whenDecodingInParallel() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive sequentialArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).build());
+		ValheimSaveArchive parallelArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).threads(4).build());
+		Assertions.assertEquals(sequentialArchive.getZdoList().size(), parallelArchive.getZdoList().size());
+		for(int i = 0; i < sequentialArchive.getZdoList().size(); i++) {
+			Assertions.assertEquals(sequentialArchive.getZdoList().get(i).getPosition(), parallelArchive.getZdoList().get(i).getPosition());
+			Assertions.assertEquals(sequentialArchive.getZdoList().get(i).getIntsByName(), parallelArchive.getZdoList().get(i).getIntsByName());
+		}
+		Assertions.assertEquals(sequentialArchive.getZones(), parallelArchive.getZones());
+		
+		File sequentialFile = File.createTempFile("sequential", ".db");
+		sequentialArchive.save(sequentialFile);
+		File parallelFile = File.createTempFile("parallel", ".db");
+		parallelArchive.save(parallelFile);
+		AssertionHelper.assertZPackageEqual(sequentialFile, parallelFile);
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldWriteSameFile_whenEncodingInParallel() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld32.db"), ValheimSaveReaderHints.builder().resolveNames(true).build());
+		File sequentialFile = File.createTempFile("sequential", ".db");
+		archive.save(sequentialFile);
+		File parallelFile = File.createTempFile("parallel", ".db");
+		archive.save(parallelFile, 4);
+		AssertionHelper.assertZPackageEqual(sequentialFile, parallelFile);
+		
+		ValheimSaveArchive retainedArchive = new ValheimSaveArchive(parallelFile, ValheimSaveReaderHints.builder().retainZdoBytes(true).lazyZdoProperties(true).build());
+		retainedArchive.getZdoList().get(100).setPersistent(true);
+		File retainedFile = File.createTempFile("retained", ".db");
+		retainedArchive.save(retainedFile, 4);
+		archive.getZdoList().get(100).setPersistent(true);
+		archive.save(sequentialFile);
+		AssertionHelper.assertZPackageEqual(sequentialFile, retainedFile);
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldLoadSameWorld_whenMappedInWindows() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+		File expectedFile = File.createTempFile("expected", ".db");
+		archive.save(expectedFile);
+		
+		ValheimSaveArchive windowedArchive = new ValheimSaveArchive(expectedFile, ValheimSaveReaderHints.builder()
+				.mapWindowSize(4096)
+				.retainZdoBytes(true)
+				.lazyZdoProperties(true)
+				.threads(4)
+				.build());
+		Assertions.assertEquals(archive.getZones(), windowedArchive.getZones());
+		Assertions.assertTrue(windowedArchive.getZdoList().stream().allMatch(zdo -> zdo.getSource() != null));
+		File outFile = File.createTempFile("out", ".db");
+		windowedArchive.save(outFile);
+		AssertionHelper.assertZPackageEqual(expectedFile, outFile);
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldShareStrings_whenInterningStrings() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+		ValheimSaveArchive internedArchive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder()
+				.internStrings(true)
+				.lazyZdoProperties(true)
+				.threads(4)
+				.build());
+		for(int i = 0; i < archive.getZdoList().size(); i++) {
+			Assertions.assertEquals(archive.getZdoList().get(i).getStrings(), internedArchive.getZdoList().get(i).getStrings());
+		}
+		Assertions.assertEquals(archive.getZones(), internedArchive.getZones());
+		File expectedFile = File.createTempFile("expected", ".db");
+		archive.save(expectedFile);
+		File outFile = File.createTempFile("out", ".db");
+		internedArchive.save(outFile);
+		AssertionHelper.assertZPackageEqual(expectedFile, outFile);
+		
+		Map<String, String> seen = new HashMap<>();
+		int shared = 0;
+		for(PrefabLocation location : internedArchive.getZones().getPrefabLocations()) {
+			String first = seen.putIfAbsent(location.getName(), location.getName());
+			if(first != null) {
+				Assertions.assertSame(first, location.getName());
+				shared++;
+			}
+		}
+		for(Zdo zdo : internedArchive.getZdoList()) {
+			if(zdo.getStrings() == null) {
+				continue;
+			}
+			for(String value : zdo.getStrings().values()) {
+				String first = seen.putIfAbsent(value, value);
+				if(first != null) {
+					Assertions.assertSame(first, value);
+					shared++;
+				}
+			}
+		}
+		Assertions.assertTrue(shared > 0);
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldCreateFileWithDefaultPermissions_whenSaving() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File directory = Files.createTempDirectory("permissions").toFile();
+		Assumptions.assumeTrue(Files.getFileStore(directory.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File outFile = new File(directory, "out.db");
+		archive.save(outFile);
+		
+		File normalFile = Files.createFile(new File(directory, "normal.db").toPath()).toFile();
+		Assertions.assertEquals(Files.getPosixFilePermissions(normalFile.toPath()), Files.getPosixFilePermissions(outFile.toPath()));
+	}
+	
+	@Test
+	public void valheimSaveArchive_shouldKeepPermissions_whenOverwriting() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File directory = Files.createTempDirectory("permissions").toFile();
+		Assumptions.assumeTrue(Files.getFileStore(directory.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File outFile = new File(directory, "out.db");
+		archive.save(outFile);
+		Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+		Files.setPosixFilePermissions(outFile.toPath(), permissions);
+		
+		archive.save(outFile);
+		Assertions.assertEquals(permissions, Files.getPosixFilePermissions(outFile.toPath()));
+		Assertions.assertArrayEquals(new String[] {"out.db"}, directory.list());
+	}
 }
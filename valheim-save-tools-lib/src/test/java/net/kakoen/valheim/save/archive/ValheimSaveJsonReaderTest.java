@@ -0,0 +1,73 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ValheimSaveJsonReaderTest {
+
+	@Test
+	public void valheimSaveJsonReader_shouldWriteSameSaveAsArchive_whenConvertingExportedJson() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File jsonFile = createTempFile(".json");
+		ValheimSaveJsonWriter.convert(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build(), jsonFile, false);
+
+		assertConvertsLikeArchive(jsonFile, 1);
+	}
+
+	@Test
+	public void valheimSaveJsonReader_shouldWriteSameSaveAsArchive_whenConvertingSerializedArchive() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File jsonFile = createTempFile(".json");
+		new ObjectMapper().writeValue(jsonFile, new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build()));
+
+		assertConvertsLikeArchive(jsonFile, 4);
+	}
+
+	@Test
+	public void valheimSaveJsonReader_shouldFailWithParseException_whenNextUidIsMissing() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		ObjectNode json = objectMapper.valueToTree(new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build()));
+		json.remove("nextUid");
+		File jsonFile = createTempFile(".json");
+		objectMapper.writeValue(jsonFile, json);
+		File outputFile = new File(Files.createTempDirectory("json").toFile(), "TestWorld34.db");
+
+		Assertions.assertThrows(JsonParseException.class, () -> ValheimSaveJsonReader.convert(jsonFile, outputFile, 1));
+		Assertions.assertEquals(0, outputFile.getParentFile().list().length);
+	}
+
+	@Test
+	public void valheimSaveJsonReader_shouldFailWithParseException_whenJsonIsNotAnObject() throws IOException {
+		File jsonFile = createTempFile(".json");
+		Files.writeString(jsonFile.toPath(), "[]");
+
+		Assertions.assertThrows(JsonParseException.class, () -> ValheimSaveJsonReader.convert(jsonFile, createTempFile(".db"), 1));
+	}
+
+	private static void assertConvertsLikeArchive(File jsonFile, int threads) throws IOException {
+		ValheimSaveArchive archive = (ValheimSaveArchive) new ObjectMapper().readerFor(ValheimArchive.class).readValue(jsonFile);
+		File expectedFile = createTempFile(".db");
+		archive.save(expectedFile);
+		File outputFile = createTempFile(".db");
+
+		int zdoCount = ValheimSaveJsonReader.convert(jsonFile, outputFile, threads);
+
+		Assertions.assertEquals(archive.getZdoList().size(), zdoCount);
+		Assertions.assertArrayEquals(Files.readAllBytes(expectedFile.toPath()), Files.readAllBytes(outputFile.toPath()));
+	}
+
+	private static File createTempFile(String suffix) throws IOException {
+		File file = File.createTempFile("TestWorld34", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+}
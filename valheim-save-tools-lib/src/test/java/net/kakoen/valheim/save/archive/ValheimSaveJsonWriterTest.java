@@ -0,0 +1,47 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ValheimSaveJsonWriterTest {
+
+	@Test
+	public void valheimSaveJsonWriter_shouldWriteJsonReadableAsArchive() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inputFile = new File("src/test/resources/TestWorld34.db");
+		File outputFile = File.createTempFile("TestWorld34", ".json");
+		outputFile.deleteOnExit();
+		ValheimSaveJsonWriter.convert(inputFile, ValheimSaveReaderHints.builder().build(), outputFile, false);
+
+		String json = Files.readString(outputFile.toPath());
+		Assertions.assertFalse(json.contains("\n"));
+
+		ValheimSaveArchive expected = new ValheimSaveArchive(inputFile, ValheimSaveReaderHints.builder().build());
+		ValheimSaveArchive actual = (ValheimSaveArchive) new ObjectMapper().readerFor(ValheimArchive.class).readValue(json);
+		Assertions.assertEquals(expected.getMeta(), actual.getMeta());
+		Assertions.assertEquals(expected.getMyId(), actual.getMyId());
+		Assertions.assertEquals(expected.getNextUid(), actual.getNextUid());
+		Assertions.assertEquals(expected.getZdoList().size(), actual.getZdoList().size());
+		Assertions.assertEquals(expected.getZones(), actual.getZones());
+		Assertions.assertEquals(expected.getRandomEvent(), actual.getRandomEvent());
+	}
+
+	@Test
+	public void valheimSaveJsonWriter_shouldWriteSameJsonAsObjectMapper_whenWritingArchive() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File outputFile = File.createTempFile("TestWorld34", ".json");
+		outputFile.deleteOnExit();
+		ValheimSaveJsonWriter.write(archive, outputFile, true);
+
+		ObjectMapper objectMapper = new ObjectMapper();
+		Assertions.assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(archive)), objectMapper.readTree(outputFile));
+	}
+}
@@ -0,0 +1,110 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ValheimSaveNdjsonTest {
+
+	@Test
+	public void valheimSaveNdjson_shouldReadWrittenArchive_whenSharded() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File directory = Files.createTempDirectory("ndjson").toFile();
+		File file = new File(directory, "TestWorld34.ndjson");
+
+		List<File> files = ValheimSaveNdjson.write(archive, file, 4, 3);
+
+		Assertions.assertEquals(4, files.size());
+		Assertions.assertFalse(file.exists());
+		Assertions.assertEquals(files, ValheimSaveNdjson.findShardFiles(file));
+		for(int shard = 0; shard < files.size(); shard++) {
+			Assertions.assertEquals("TestWorld34-" + shard + ".ndjson", files.get(shard).getName());
+			List<String> lines = Files.readAllLines(files.get(shard).toPath());
+			for(String line : lines.subList(1, lines.size())) {
+				Zdo zdo = new ObjectMapper().readValue(line, Zdo.class);
+				Assertions.assertEquals(shard, ValheimSaveNdjson.getShard(zdo.getSector(), files.size()));
+			}
+		}
+
+		ValheimSaveArchive read = ValheimSaveNdjson.read(file);
+		Assertions.assertEquals(archive.getMeta(), read.getMeta());
+		Assertions.assertEquals(archive.getMyId(), read.getMyId());
+		Assertions.assertEquals(archive.getNextUid(), read.getNextUid());
+		Assertions.assertEquals(archive.getZones(), read.getZones());
+		Assertions.assertEquals(archive.getRandomEvent(), read.getRandomEvent());
+		Assertions.assertEquals(sortedJson(archive.getZdoList()), sortedJson(read.getZdoList()));
+	}
+
+	@Test
+	public void valheimSaveNdjson_shouldWriteSameSaveAsArchive_whenConverting() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File directory = Files.createTempDirectory("ndjson").toFile();
+		File file = new File(directory, "TestWorld34.ndjson");
+		ValheimSaveNdjson.write(archive, file, 1, 1);
+		Assertions.assertEquals(archive.getZdoList().size() + 1, Files.readAllLines(file.toPath()).size());
+
+		File expectedFile = new File(directory, "expected.db");
+		ValheimSaveNdjson.read(file).save(expectedFile);
+		File outputFile = new File(directory, "output.db");
+		int zdoCount = ValheimSaveNdjson.convert(file, outputFile, 2);
+
+		Assertions.assertEquals(archive.getZdoList().size(), zdoCount);
+		Assertions.assertArrayEquals(Files.readAllBytes(expectedFile.toPath()), Files.readAllBytes(outputFile.toPath()));
+	}
+
+	@Test
+	public void valheimSaveNdjson_shouldReplaceFilesOfOtherLayout_whenWriting() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File directory = Files.createTempDirectory("ndjson").toFile();
+		File file = new File(directory, "TestWorld34.ndjson");
+
+		ValheimSaveNdjson.write(archive, file, 4, 2);
+		Assertions.assertEquals(List.of("TestWorld34-0.ndjson", "TestWorld34-1.ndjson", "TestWorld34-2.ndjson", "TestWorld34-3.ndjson"), sortedNames(directory));
+		ValheimSaveNdjson.write(archive, file, 1, 2);
+		Assertions.assertEquals(List.of("TestWorld34.ndjson"), sortedNames(directory));
+		ValheimSaveNdjson.write(archive, file, 4, 2);
+		ValheimSaveNdjson.write(archive, file, 2, 2);
+		Assertions.assertEquals(List.of("TestWorld34-0.ndjson", "TestWorld34-1.ndjson"), sortedNames(directory));
+		Assertions.assertEquals(sortedJson(archive.getZdoList()), sortedJson(ValheimSaveNdjson.read(file).getZdoList()));
+	}
+
+	@Test
+	public void valheimSaveNdjson_shouldStartEachLineWithObject_whenSharded() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld34.db"), ValheimSaveReaderHints.builder().build());
+		File directory = Files.createTempDirectory("ndjson").toFile();
+
+		for(File shardFile : ValheimSaveNdjson.write(archive, new File(directory, "TestWorld34.ndjson"), 3, 2)) {
+			for(String line : Files.readAllLines(shardFile.toPath())) {
+				Assertions.assertTrue(line.startsWith("{"), line);
+			}
+		}
+	}
+
+	private static List<String> sortedNames(File directory) {
+		List<String> names = new ArrayList<>(List.of(directory.list()));
+		Collections.sort(names);
+		return names;
+	}
+
+	private static List<String> sortedJson(List<Zdo> zdos) throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		List<String> json = new ArrayList<>();
+		for(Zdo zdo : zdos) {
+			json.add(objectMapper.writeValueAsString(zdo));
+		}
+		Collections.sort(json);
+		return json;
+	}
+}
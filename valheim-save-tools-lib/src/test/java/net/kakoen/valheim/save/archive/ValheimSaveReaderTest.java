@@ -0,0 +1,58 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ValheimSaveReaderTest {
+
+	@Test
+	public void valheimSaveReader_shouldStreamSameZdosAsArchive() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld34.db");
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+
+		try(ValheimSaveReader reader = new ValheimSaveReader(inFile, ValheimSaveReaderHints.builder().build())) {
+			Assertions.assertEquals(archive.getMeta(), reader.getMeta());
+			Assertions.assertEquals(archive.getZdoList().size(), reader.getZdoCount());
+			int index = 0;
+			while(reader.hasNext()) {
+				Zdo zdo = reader.next();
+				Assertions.assertEquals(archive.getZdoList().get(index++), zdo);
+			}
+			Assertions.assertEquals(archive.getZdoList().size(), index);
+			Assertions.assertEquals(archive.getZones(), reader.getZones());
+			Assertions.assertEquals(archive.getRandomEvent(), reader.getRandomEvent());
+		}
+	}
+
+	@Test
+	public void valheimSaveReader_shouldSkipUnreadZdos_whenZonesAreRequested() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().build());
+
+		try(ValheimSaveReader reader = new ValheimSaveReader(inFile, ValheimSaveReaderHints.builder().build())) {
+			Assertions.assertEquals(archive.getZones().getGlobalKeys(), reader.getZones().getGlobalKeys());
+			Assertions.assertFalse(reader.hasNext());
+			Assertions.assertNull(reader.readZdo());
+		}
+	}
+
+	@Test
+	public void valheimSaveReader_shouldFailClearly_whenZdoDoesNotFitInWindow() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld34.db");
+		try(ValheimSaveReader reader = new ValheimSaveReader(inFile, ValheimSaveReaderHints.builder().mapWindowSize(16).build())) {
+			IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> {
+				while(reader.hasNext()) {
+					reader.readZdo();
+				}
+			});
+			Assertions.assertTrue(e.getMessage().contains("mapWindowSize"), e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.SectorIndex;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ValheimSaveSnapshotTest {
+
+	private static final ValheimSaveReaderHints HINTS = ValheimSaveReaderHints.builder()
+			.lazyZdoProperties(true)
+			.retainZdoBytes(true)
+			.threads(3)
+			.build();
+
+	@Test
+	public void load_shouldReadSameArchive_whenUsingSnapshot() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File file = copyWorld();
+		ValheimSaveArchive expected = new ValheimSaveArchive(file, HINTS);
+
+		ValheimSaveArchive built = ValheimSaveSnapshot.load(file, HINTS);
+		ValheimSaveSnapshot snapshot = ValheimSaveSnapshot.read(file);
+		Assertions.assertNotNull(snapshot);
+		Assertions.assertEquals(expected.getZdoList().size(), snapshot.getZdoCount());
+		ValheimSaveArchive loaded = ValheimSaveSnapshot.load(file, HINTS);
+
+		ObjectMapper objectMapper = new ObjectMapper();
+		String expectedJson = objectMapper.writeValueAsString(expected);
+		Assertions.assertEquals(expectedJson, objectMapper.writeValueAsString(built));
+		Assertions.assertEquals(expectedJson, objectMapper.writeValueAsString(loaded));
+
+		SectorIndex expectedIndex = expected.getSectorIndex();
+		SectorIndex loadedIndex = loaded.getSectorIndex();
+		Assertions.assertSame(loaded.getZdoList(), loadedIndex.getZdoList());
+		Assertions.assertEquals(expectedIndex.getSectors(), loadedIndex.getSectors());
+		Assertions.assertEquals(
+				objectMapper.writeValueAsString(expectedIndex.getZdosInSectors(-3, -3, 3, 3)),
+				objectMapper.writeValueAsString(loadedIndex.getZdosInSectors(-3, -3, 3, 3)));
+	}
+
+	@Test
+	public void read_shouldKeepResolvedNames_whenBuildingSnapshot() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File file = copyWorld();
+		ValheimSaveArchive archive = ValheimSaveSnapshot.load(file, HINTS);
+
+		ReverseHashcodeLookup names = ValheimSaveSnapshot.read(file).getNames();
+		int prefab = archive.getZdoList().get(0).getPrefab();
+		Assertions.assertTrue(names.size() > 0);
+		Assertions.assertEquals(ReverseHashcodeLookup.lookup(prefab), names.get(prefab));
+	}
+
+	@Test
+	public void load_shouldResolveNamesFromSnapshot_whenResolverDoesNotKnowThem() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File file = copyWorld();
+		ValheimSaveSnapshot.load(file, HINTS);
+
+		ValheimSaveReaderHints hints = ValheimSaveReaderHints.builder()
+				.resolveNames(true)
+				.nameResolver(ReverseHashcodeLookup.fromNames(List.of()))
+				.threads(3)
+				.build();
+		ValheimSaveArchive archive = ValheimSaveSnapshot.load(file, hints);
+		Zdo zdo = archive.getZdoList().get(0);
+		Assertions.assertNotNull(zdo.getPrefabName());
+		Assertions.assertEquals(ReverseHashcodeLookup.lookup(zdo.getPrefab()), zdo.getPrefabName());
+	}
+
+	@Test
+	public void load_shouldNotLeaveTemporaryFiles_whenWritingSnapshot() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File file = copyWorld();
+		ValheimSaveSnapshot.load(file, HINTS);
+		Assertions.assertTrue(file.setLastModified(file.lastModified() - 60_000));
+		ValheimSaveSnapshot.load(file, HINTS);
+
+		String[] files = file.getParentFile().list();
+		Arrays.sort(files);
+		Assertions.assertArrayEquals(new String[] {"TestWorld32.db", "TestWorld32.db.snapshot"}, files);
+	}
+
+	@Test
+	public void read_shouldIgnoreSnapshot_whenSaveFileChanged() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File file = copyWorld();
+		ValheimSaveSnapshot.load(file, HINTS);
+		Assertions.assertNotNull(ValheimSaveSnapshot.read(file));
+
+		Assertions.assertTrue(file.setLastModified(file.lastModified() - 60_000));
+		Assertions.assertNull(ValheimSaveSnapshot.read(file));
+
+		ValheimSaveSnapshot.load(file, HINTS);
+		Assertions.assertNotNull(ValheimSaveSnapshot.read(file));
+	}
+
+	@Test
+	public void read_shouldIgnoreSnapshot_whenCorrupt() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File file = copyWorld();
+		ValheimSaveSnapshot.load(file, HINTS);
+		File snapshotFile = ValheimSaveSnapshot.getSnapshotFile(file);
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "rw")) {
+			randomAccessFile.seek(snapshotFile.length() / 2);
+			int value = randomAccessFile.read();
+			randomAccessFile.seek(snapshotFile.length() / 2);
+			randomAccessFile.write(value ^ 0xff);
+		}
+
+		Assertions.assertNull(ValheimSaveSnapshot.read(file));
+	}
+
+	private static File copyWorld() throws IOException {
+		File file = new File(Files.createTempDirectory("snapshot").toFile(), "TestWorld32.db");
+		Files.copy(new File("src/test/resources/TestWorld32.db").toPath(), file.toPath());
+		return file;
+	}
+}
@@ -0,0 +1,63 @@
+package net.kakoen.valheim.save.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ZdoPipelineTest {
+
+	@Test
+	public void zdoPipeline_shouldCopyWorld_withoutStages() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld34.db");
+		File outFile = File.createTempFile("out", ".db");
+		new ZdoPipeline().run(inFile, outFile, ValheimSaveReaderHints.builder().build());
+		AssertionHelper.assertZPackageEqual(inFile, outFile);
+	}
+
+	@Test
+	public void zdoPipeline_shouldMatchInMemoryProcessing() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld34.db");
+		ValheimSaveReaderHints hints = ValheimSaveReaderHints.builder().build();
+
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, hints);
+		archive.setZdoList(archive.getZdoList().stream()
+				.filter(zdo -> zdo.getSector().getX() >= 15625)
+				.collect(Collectors.toList()));
+		archive.getZones().getGlobalKeys().add("defeated_eikthyr");
+		File expectedFile = File.createTempFile("expected", ".db");
+		archive.save(expectedFile);
+
+		File filteredFile = File.createTempFile("filtered", ".db");
+		new ZdoPipeline()
+				.filter(zdo -> zdo.getSector().getX() >= 15625)
+				.zones(zones -> zones.getGlobalKeys().add("defeated_eikthyr"))
+				.run(inFile, filteredFile, hints);
+		AssertionHelper.assertZPackageEqual(expectedFile, filteredFile);
+
+		File transformedFile = File.createTempFile("transformed", ".db");
+		new ZdoPipeline()
+				.transform(zdo -> zdo.getSector().getX() >= 15625 ? zdo : null)
+				.zones(zones -> zones.getGlobalKeys().add("defeated_eikthyr"))
+				.run(inFile, transformedFile, hints);
+		AssertionHelper.assertZPackageEqual(expectedFile, transformedFile);
+	}
+
+	@Test
+	public void zdoPipeline_shouldConvertOlderWorldVersion() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		ValheimSaveReaderHints hints = ValheimSaveReaderHints.builder().build();
+
+		File expectedFile = File.createTempFile("expected", ".db");
+		new ValheimSaveArchive(inFile, hints).save(expectedFile);
+
+		File outFile = File.createTempFile("out", ".db");
+		new ZdoPipeline().run(inFile, outFile, hints);
+		AssertionHelper.assertZPackageEqual(expectedFile, outFile);
+	}
+}
@@ -0,0 +1,121 @@
+package net.kakoen.valheim.save.collection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.save.Zdo;
+
+public class AbstractIntKeyMapTest {
+
+	@Test
+	public void intKeyMap_shouldBehaveLikeLinkedHashMap() {
+		Random random = new Random(42);
+		IntIntMap map = new IntIntMap();
+		Map<Integer, Integer> expected = new LinkedHashMap<>();
+		for(int i = 0; i < 10000; i++) {
+			int key = random.nextInt(40) - 20;
+			switch(random.nextInt(4)) {
+				case 0:
+					Assertions.assertEquals(expected.put(key, i), map.put(key, i));
+					break;
+				case 1:
+					map.putInt(key, i);
+					expected.put(key, i);
+					break;
+				case 2:
+					Assertions.assertEquals(expected.remove(key), map.remove(key));
+					break;
+				default:
+					Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+					while(iterator.hasNext()) {
+						if(iterator.next().getKey() == key) {
+							iterator.remove();
+						}
+					}
+					expected.remove(key);
+			}
+			Assertions.assertEquals(expected, map);
+			Assertions.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+			Assertions.assertEquals(expected.hashCode(), map.hashCode());
+			Assertions.assertEquals(expected.containsKey(key), map.containsKey(key));
+			Assertions.assertEquals((int) expected.getOrDefault(key, -1), map.getInt(key, -1));
+		}
+	}
+
+	@Test
+	public void intKeyMap_shouldRoundTripThroughJson() throws IOException {
+		Zdo zdo = new Zdo();
+		IntFloatMap floats = new IntFloatMap();
+		floats.putFloat(-5, 1.5f);
+		floats.putFloat(12, 2f);
+		zdo.setFloats(floats);
+		IntObjectMap<String> strings = new IntObjectMap<>();
+		strings.put(7, "seven");
+		zdo.setStrings(strings);
+
+		ObjectMapper objectMapper = new ObjectMapper();
+		String json = objectMapper.writeValueAsString(zdo);
+		Assertions.assertTrue(json.contains("\"floats\":{\"-5\":1.5,\"12\":2.0}"));
+
+		Zdo read = objectMapper.readValue(json, Zdo.class);
+		Assertions.assertTrue(read.getFloats() instanceof IntFloatMap);
+		Assertions.assertTrue(read.getStrings() instanceof IntObjectMap);
+		Assertions.assertEquals(zdo.getFloats(), read.getFloats());
+		Assertions.assertEquals(zdo.getStrings(), read.getStrings());
+	}
+
+	@Test
+	public void intKeyMap_shouldMatchPut_whenAppendingBeyondCapacity() {
+		IntFloatMap floats = new IntFloatMap(1);
+		IntIntMap ints = new IntIntMap(1);
+		IntLongMap longs = new IntLongMap(1);
+		IntObjectMap<String> strings = new IntObjectMap<>(1);
+		Map<Integer, Integer> expected = new LinkedHashMap<>();
+		for(int i = 0; i < 20; i++) {
+			floats.appendFloat(i * 7, i);
+			ints.appendInt(i * 7, i);
+			longs.appendLong(i * 7, i);
+			strings.appendValue(i * 7, String.valueOf(i));
+			expected.put(i * 7, i);
+		}
+
+		Assertions.assertEquals(expected, ints);
+		for(Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			Assertions.assertEquals((float) entry.getValue(), floats.getFloat(entry.getKey(), -1f));
+			Assertions.assertEquals((long) entry.getValue(), longs.getLong(entry.getKey(), -1L));
+			Assertions.assertEquals(String.valueOf(entry.getValue()), strings.get(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void intKeyMap_shouldRejectNullValue_whenValuesAreUnboxed() {
+		IntFloatMap map = new IntFloatMap();
+		map.putFloat(1, 1f);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(2, null));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> map.entrySet().iterator().next().setValue(null));
+		Assertions.assertEquals(Map.of(1, 1f), map);
+
+		IntObjectMap<String> strings = new IntObjectMap<>();
+		strings.put(1, null);
+		Assertions.assertTrue(strings.containsKey(1));
+	}
+
+	@Test
+	public void intKeyMap_shouldFailToReadJson_whenPropertyValueIsNull() {
+		ObjectMapper objectMapper = new ObjectMapper();
+
+		Assertions.assertThrows(JsonMappingException.class, () -> objectMapper.readValue("{\"floats\":{\"1\":null}}", Zdo.class));
+		Assertions.assertThrows(JsonMappingException.class, () -> objectMapper.readValue("{\"stringsByName\":{\"creator\":null}}", Zdo.class));
+	}
+}
@@ -0,0 +1,135 @@
+package net.kakoen.valheim.save.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.archive.save.Zdo;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ZdoColumnWriterTest {
+
+	@Test
+	public void zdoColumnWriter_shouldWriteColumnsOfAllZdos() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld32.db"), ValheimSaveReaderHints.builder().build());
+		List<Zdo> zdoList = archive.getZdoList();
+		File file = File.createTempFile("TestWorld32", ".zcol");
+		file.deleteOnExit();
+		ZdoColumnWriter.write(archive, file, 5000);
+
+		try(ZdoColumnReader reader = new ZdoColumnReader(file)) {
+			Assertions.assertEquals(zdoList.size(), reader.getRowCount(ZdoTable.ZDOS));
+			Assertions.assertEquals((zdoList.size() + 4999) / 5000, reader.getRowGroupCount(ZdoTable.ZDOS));
+
+			int[] indexOfRow = new int[zdoList.size()];
+			boolean[] seen = new boolean[zdoList.size()];
+			for(int group = 0; group < reader.getRowGroupCount(ZdoTable.ZDOS); group++) {
+				ColumnChunk index = reader.getChunk(ZdoColumn.INDEX, group);
+				ColumnChunk prefab = reader.getChunk(ZdoColumn.PREFAB, group);
+				ColumnChunk sectorX = reader.getChunk(ZdoColumn.SECTOR_X, group);
+				ColumnChunk sectorY = reader.getChunk(ZdoColumn.SECTOR_Y, group);
+				ColumnChunk positionY = reader.getChunk(ZdoColumn.POSITION_Y, group);
+				ColumnChunk flags = reader.getChunk(ZdoColumn.FLAGS, group);
+				Assertions.assertEquals(reader.getRowCount(ZdoTable.ZDOS, group), index.getSize());
+				for(int row = 0; row < index.getSize(); row++) {
+					Zdo zdo = zdoList.get(index.getInt(row));
+					Assertions.assertFalse(seen[index.getInt(row)]);
+					seen[index.getInt(row)] = true;
+					indexOfRow[(int) reader.getFirstRow(ZdoTable.ZDOS, group) + row] = index.getInt(row);
+					Assertions.assertEquals(zdo.getPrefab(), reader.getPrefab(prefab.getInt(row)));
+					Assertions.assertEquals(zdo.getSector().getX(), sectorX.getInt(row));
+					Assertions.assertEquals(zdo.getSector().getY(), sectorY.getInt(row));
+					Assertions.assertTrue(sectorX.getMin() <= zdo.getSector().getX() && zdo.getSector().getX() <= sectorX.getMax());
+					Assertions.assertTrue(reader.mayContain(ZdoColumn.SECTOR_Y, group, zdo.getSector().getY(), zdo.getSector().getY()));
+					Assertions.assertEquals(zdo.getPosition().getY(), positionY.getFloat(row));
+					Assertions.assertEquals(zdo.isPersistent(), (flags.getInt(row) & ZdoColumnWriter.FLAG_PERSISTENT) != 0);
+				}
+			}
+
+			int floatCount = 0;
+			for(int group = 0; group < reader.getRowGroupCount(ZdoTable.FLOATS); group++) {
+				ColumnChunk zdoRow = reader.getChunk(ZdoColumn.FLOAT_ZDO, group);
+				ColumnChunk key = reader.getChunk(ZdoColumn.FLOAT_KEY, group);
+				ColumnChunk value = reader.getChunk(ZdoColumn.FLOAT_VALUE, group);
+				for(int row = 0; row < zdoRow.getSize(); row++) {
+					Zdo zdo = zdoList.get(indexOfRow[zdoRow.getInt(row)]);
+					Assertions.assertEquals((float) zdo.getFloats().get(key.getInt(row)), value.getFloat(row));
+					floatCount++;
+				}
+			}
+			Assertions.assertEquals(zdoList.stream().mapToInt(zdo -> zdo.getFloats() == null ? 0 : zdo.getFloats().size()).sum(), floatCount);
+
+			int stringCount = 0;
+			for(int group = 0; group < reader.getRowGroupCount(ZdoTable.STRINGS); group++) {
+				ColumnChunk zdoRow = reader.getChunk(ZdoColumn.STRING_ZDO, group);
+				ColumnChunk key = reader.getChunk(ZdoColumn.STRING_KEY, group);
+				ColumnChunk end = reader.getChunk(ZdoColumn.STRING_END, group);
+				ColumnChunk data = reader.getChunk(ZdoColumn.STRING_DATA, group);
+				for(int row = 0; row < zdoRow.getSize(); row++) {
+					Map<Integer, String> strings = zdoList.get(indexOfRow[zdoRow.getInt(row)]).getStrings();
+					Assertions.assertEquals(strings.get(key.getInt(row)), new String(data.getBytes(end, row), StandardCharsets.UTF_8));
+					stringCount++;
+				}
+			}
+			Assertions.assertEquals(zdoList.stream().mapToInt(zdo -> zdo.getStrings() == null ? 0 : zdo.getStrings().size()).sum(), stringCount);
+			Assertions.assertEquals(zdoList.stream().mapToInt(zdo -> zdo.getLongs() == null ? 0 : zdo.getLongs().size()).sum(), reader.getRowCount(ZdoTable.LONGS));
+		}
+	}
+
+	@Test
+	public void zdoColumnWriter_shouldWritePropertiesSetByName_whenReadFromJson() throws IOException, ValheimArchiveUnsupportedVersionException {
+		ValheimSaveArchive archive = new ValheimSaveArchive(new File("src/test/resources/TestWorld32.db"), ValheimSaveReaderHints.builder().resolveNames(true).build());
+		ObjectMapper objectMapper = new ObjectMapper();
+		ValheimSaveArchive jsonArchive = objectMapper.readValue(objectMapper.writeValueAsString(archive), ValheimSaveArchive.class);
+		Assertions.assertTrue(jsonArchive.getZdoList().stream().anyMatch(zdo -> zdo.getFloatsByName() != null && !zdo.getFloatsByName().isEmpty()));
+
+		File file = File.createTempFile("TestWorld32", ".zcol");
+		file.deleteOnExit();
+		ZdoColumnWriter.write(archive, file, 5000);
+		File jsonFile = File.createTempFile("TestWorld32-json", ".zcol");
+		jsonFile.deleteOnExit();
+		ZdoColumnWriter.write(jsonArchive, jsonFile, 5000);
+
+		try(ZdoColumnReader reader = new ZdoColumnReader(file); ZdoColumnReader jsonReader = new ZdoColumnReader(jsonFile)) {
+			for(ZdoTable table : ZdoTable.values()) {
+				Assertions.assertEquals(reader.getRowCount(table), jsonReader.getRowCount(table), table.name());
+			}
+			Assertions.assertEquals(readFloats(reader), readFloats(jsonReader));
+		}
+	}
+
+	/**
+	 * Returns the index of the zdo, key and value of each float property, sorted
+	 */
+	private static List<String> readFloats(ZdoColumnReader reader) throws IOException {
+		List<Integer> indexOfRow = new ArrayList<>();
+		for(int group = 0; group < reader.getRowGroupCount(ZdoTable.ZDOS); group++) {
+			ColumnChunk index = reader.getChunk(ZdoColumn.INDEX, group);
+			for(int row = 0; row < index.getSize(); row++) {
+				indexOfRow.add(index.getInt(row));
+			}
+		}
+		List<String> floats = new ArrayList<>();
+		for(int group = 0; group < reader.getRowGroupCount(ZdoTable.FLOATS); group++) {
+			ColumnChunk zdoRow = reader.getChunk(ZdoColumn.FLOAT_ZDO, group);
+			ColumnChunk key = reader.getChunk(ZdoColumn.FLOAT_KEY, group);
+			ColumnChunk value = reader.getChunk(ZdoColumn.FLOAT_VALUE, group);
+			for(int row = 0; row < zdoRow.getSize(); row++) {
+				floats.add(indexOfRow.get(zdoRow.getInt(row)) + ":" + key.getInt(row) + ":" + value.getFloat(row));
+			}
+		}
+		Collections.sort(floats);
+		return floats;
+	}
+}
@@ -1,7 +1,14 @@
 package net.kakoen.valheim.save.parser;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -21,6 +28,109 @@ public class ZPackageTest {
 		Assertions.assertEquals(0xFFFFFFFFL, zPackage.readUInt());
 	}
 	
+	@Test
+	public void zpackage_shouldReadValuesAcrossWindows() throws IOException {
+		try(ZPackage zPackage = new ZPackage(new File("src/test/resources/out.bin"), 7)) {
+			Assertions.assertTrue(zPackage.isWindowed());
+			Assertions.assertEquals("1", zPackage.readString());
+			Assertions.assertEquals("123456789012345678901234567890", zPackage.readString());
+			Assertions.assertEquals("1234567890123456789012345678901234567890123456789012345678901234567890123456789012345678901234567890", zPackage.readString());
+			zPackage.readString();
+			Assertions.assertEquals(10, zPackage.readChar());
+			Assertions.assertEquals(280, zPackage.readChar());
+			long position = zPackage.getLongPosition();
+			Assertions.assertEquals(10, zPackage.readUInt());
+			Assertions.assertEquals(0xFFFFFFFFL, zPackage.readUInt());
+			zPackage.setPosition(position);
+			Assertions.assertEquals(10, zPackage.readUInt());
+			Assertions.assertEquals(zPackage.getLength() - 4, zPackage.getLongPosition());
+			zPackage.skip(4);
+		}
+	}
+	
+	@Test
+	public void zPackage_shouldEncodeStringLengthsAsBefore() {
+		List<Integer> values = new ArrayList<>();
+		for(int value = 0; value < 1 << 22; value++) {
+			values.add(value);
+		}
+		for(int shift = 22; shift < 31; shift++) {
+			for(int delta = -1000; delta <= 1000; delta++) {
+				values.add((1 << shift) + delta);
+			}
+		}
+		for(int delta = 0; delta < 1000; delta++) {
+			values.add(Integer.MAX_VALUE - delta);
+		}
+		
+		ZPackage zPackage = new ZPackage();
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		for(int value : values) {
+			zPackage.writeStringLength(value);
+			writeStringLengthAsBefore(value, expected);
+		}
+		Assertions.assertArrayEquals(expected.toByteArray(), zPackage.getBufferAsBytes());
+		
+		ZPackage readPackage = new ZPackage(expected.toByteArray());
+		for(int value : values) {
+			Assertions.assertEquals(value, readPackage.readStringLength());
+		}
+		Assertions.assertEquals(expected.size(), readPackage.getPosition());
+		
+		Assertions.assertThrows(IllegalStateException.class, () -> new ZPackage(new byte[] { -1, -1, -1, -1, -1, 1 }).readStringLength());
+	}
+	
+	/**
+	 * The encoding of string lengths before it was reimplemented without allocating
+	 */
+	private static void writeStringLengthAsBefore(int value, ByteArrayOutputStream os) {
+		if(value == 0) {
+			os.write(0);
+			return;
+		}
+		Stack<Short> encodedLength = new Stack<>();
+		while(value > 0) {
+			short l = (short) (value & 0x7F);
+			value = value >> 7;
+			if(value > 0) {
+				l = (short) (l | 0x80);
+			}
+			encodedLength.push(l);
+		}
+		encodedLength.forEach(os::write);
+	}
+	
+	@Test
+	public void zPackage_shouldEncodeStringsAsUtf8_forAnyBuffer() {
+		StringBuilder longString = new StringBuilder();
+		for(int i = 0; i < 20000; i++) {
+			longString.append((char) ('a' + i % 26));
+		}
+		List<String> strings = List.of("", "creator", "$item_sword_iron", "\u00C6rlig talt \u20AC", "\uD83D\uDE00 emoji", "lone \uD800 surrogate", "\u007F\u0080", longString.toString(), longString + "\u00E9");
+		
+		ZPackage zPackage = ZPackage.segmented(64, false);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		for(String string : strings) {
+			zPackage.writeString(string);
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeStringLengthAsBefore(bytes.length, expected);
+			expected.writeBytes(bytes);
+		}
+		byte[] encoded = zPackage.getBufferAsBytes();
+		Assertions.assertArrayEquals(expected.toByteArray(), encoded);
+		
+		ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+		direct.put(encoded).flip();
+		ZPackage heapPackage = new ZPackage();
+		heapPackage.writeBytes(encoded);
+		heapPackage.setPosition(0);
+		for(ZPackage readPackage : List.of(new ZPackage(encoded), new ZPackage(direct), heapPackage)) {
+			for(String string : strings) {
+				Assertions.assertEquals(new String(string.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), readPackage.readString());
+			}
+		}
+	}
+	
 	@Test
 	public void zPackage_shouldWriteValuesCorrectly() throws IOException {
 		ZPackage zPackage = new ZPackage();
@@ -41,4 +151,53 @@ public class ZPackageTest {
 		
 	}
 	
+	@Test
+	public void zPackage_shouldWriteSameBytes_whenSegmented() throws IOException {
+		ZPackage expected = new ZPackage();
+		ZPackage segmented = ZPackage.segmented(16, false);
+		ByteArrayOutputStream sinkContents = new ByteArrayOutputStream();
+		ZPackage sunk = ZPackage.segmented(Channels.newChannel(sinkContents), 16, true);
+		for(ZPackage zPackage : List.of(expected, segmented, sunk)) {
+			for(int i = 0; i < 100; i++) {
+				zPackage.writeInt32(i);
+				zPackage.writeString("value" + i);
+				zPackage.writeLong(i * 1000L);
+				zPackage.writeBytes(new byte[i % 40]);
+			}
+		}
+		Assertions.assertEquals(expected.getPosition(), segmented.getLongPosition());
+		Assertions.assertEquals(expected.getPosition(), sunk.getLongPosition());
+		Assertions.assertTrue(segmented.getWrittenSegments().length > 1);
+		Assertions.assertArrayEquals(expected.getBufferAsBytes(), segmented.getBufferAsBytes());
+		
+		sunk.flush();
+		Assertions.assertArrayEquals(expected.getBufferAsBytes(), sinkContents.toByteArray());
+	}
+	
+	@Test
+	public void zPackage_shouldPatchLengthPrefixes_whenWritingInPlace() {
+		ZPackage expected = new ZPackage();
+		ZPackage segmented = ZPackage.segmented(16, false);
+		for(ZPackage zPackage : List.of(expected, segmented)) {
+			zPackage.writeLengthPrefixedHashedObject(writer -> {
+				writer.writeString("outer");
+				writer.writeLengthPrefixedObject(inner -> {
+					for(int i = 0; i < 20; i++) {
+						inner.writeInt32(i);
+					}
+				});
+				writer.writeCompressedPackage(compressed -> compressed.writeString("compressed"));
+			});
+		}
+		Assertions.assertArrayEquals(expected.getBufferAsBytes(), segmented.getBufferAsBytes());
+		
+		ZPackage reader = new ZPackage(segmented.getBufferAsBytes());
+		Assertions.assertEquals(expected.getPosition() - 4 - 4 - 64, reader.readInt32());
+		Assertions.assertEquals("outer", reader.readString());
+		Assertions.assertEquals(80, reader.readInt32());
+		reader.skip(80);
+		Assertions.assertEquals("compressed", reader.readCompressedPackage().readString());
+		Assertions.assertEquals(64, reader.readLengthPrefixedByteArray().length);
+	}
+	
 }
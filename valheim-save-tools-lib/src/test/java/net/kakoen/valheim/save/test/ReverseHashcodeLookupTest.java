@@ -0,0 +1,97 @@
+package net.kakoen.valheim.save.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.kakoen.valheim.save.archive.ValheimSaveArchive;
+import net.kakoen.valheim.save.archive.hints.ValheimSaveReaderHints;
+import net.kakoen.valheim.save.decode.LayeredNameResolver;
+import net.kakoen.valheim.save.decode.LearningNameResolver;
+import net.kakoen.valheim.save.decode.NameResolver;
+import net.kakoen.valheim.save.decode.ReverseHashcodeLookup;
+import net.kakoen.valheim.save.decode.StableHashCode;
+import net.kakoen.valheim.save.exception.ValheimArchiveUnsupportedVersionException;
+
+public class ReverseHashcodeLookupTest {
+
+	@Test
+	public void reverseHashcodeLookup_shouldResolveKnownStrings() {
+		Assertions.assertEquals("ownerName", ReverseHashcodeLookup.lookup(1227488406));
+		Assertions.assertEquals("creator", ReverseHashcodeLookup.lookup(StableHashCode.getStableHashCode("creator")));
+		Assertions.assertEquals("room5_rot", ReverseHashcodeLookup.lookup(StableHashCode.getStableHashCode("room5_rot")));
+		Assertions.assertNull(ReverseHashcodeLookup.lookup(StableHashCode.getStableHashCode("wefijfewijfjewi")));
+	}
+
+	@Test
+	public void reverseHashcodeLookup_shouldReadSameTable_asWritten() throws IOException {
+		ReverseHashcodeLookup lookup;
+		try(InputStream is = ReverseHashcodeLookup.class.getResourceAsStream(ReverseHashcodeLookup.KNOWN_STRINGS_RESOURCE)) {
+			lookup = ReverseHashcodeLookup.fromKnownStrings(is);
+		}
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		lookup.write(os);
+		ReverseHashcodeLookup read = ReverseHashcodeLookup.read(new ByteArrayInputStream(os.toByteArray()));
+		Assertions.assertEquals(lookup.getStringsByStableHashcode(), read.getStringsByStableHashcode());
+		Assertions.assertEquals(lookup.getStringsByStableHashcode(), ReverseHashcodeLookup.INSTANCE.getStringsByStableHashcode());
+		for(Map.Entry<Integer, String> entry : lookup.getStringsByStableHashcode().entrySet()) {
+			Assertions.assertEquals(entry.getValue(), read.get(entry.getKey()));
+		}
+	}
+	
+	@Test
+	public void layeredNameResolver_shouldPreferEarlierDictionaries() throws IOException {
+		File directory = Files.createTempDirectory("dictionaries").toFile();
+		Files.writeString(new File(directory, "a.txt").toPath(), "# Mod prefabs\nMyModPrefab\n\nownerName\n");
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ReverseHashcodeLookup.fromNames(new ByteArrayInputStream("OtherModPrefab".getBytes(StandardCharsets.UTF_8))).write(os);
+		Files.write(new File(directory, "b.bin").toPath(), os.toByteArray());
+		NameResolver override = hash -> hash == StableHashCode.getStableHashCode("creator") ? "overridden" : null;
+		
+		LayeredNameResolver resolver = LayeredNameResolver.of(override, LayeredNameResolver.withDictionaries(List.of(directory)));
+		Assertions.assertEquals("MyModPrefab", resolver.resolve(StableHashCode.getStableHashCode("MyModPrefab")));
+		Assertions.assertEquals("OtherModPrefab", resolver.resolve(StableHashCode.getStableHashCode("OtherModPrefab")));
+		Assertions.assertEquals("ownerName", resolver.resolve(StableHashCode.getStableHashCode("ownerName")));
+		Assertions.assertEquals("overridden", resolver.resolve(StableHashCode.getStableHashCode("creator")));
+		Assertions.assertEquals("health", resolver.resolve(StableHashCode.getStableHashCode("health")));
+		Assertions.assertNull(resolver.resolve(StableHashCode.getStableHashCode("#")));
+	}
+	
+	@Test
+	public void learningNameResolver_shouldCountUnresolvedNames_whenExportingWorld() throws IOException, ValheimArchiveUnsupportedVersionException {
+		File inFile = new File("src/test/resources/TestWorld32.db");
+		LearningNameResolver learning = new LearningNameResolver(ReverseHashcodeLookup.INSTANCE);
+		ValheimSaveArchive loaded = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).nameResolver(learning).build());
+		Assertions.assertTrue(learning.getUnresolved().isEmpty());
+		new ObjectMapper().writeValueAsString(loaded.getZdoList());
+		Map<Integer, Long> unresolved = learning.getUnresolved();
+		Assertions.assertFalse(unresolved.isEmpty());
+		long previous = Long.MAX_VALUE;
+		for(long count : unresolved.values()) {
+			Assertions.assertTrue(count <= previous);
+			previous = count;
+		}
+		
+		int mostFrequent = unresolved.keySet().iterator().next();
+		NameResolver resolver = LayeredNameResolver.of(hash -> hash == mostFrequent ? "learned" : null, ReverseHashcodeLookup.INSTANCE);
+		ValheimSaveArchive archive = new ValheimSaveArchive(inFile, ValheimSaveReaderHints.builder().resolveNames(true).nameResolver(resolver).build());
+		long resolved = archive.getZdoList().stream()
+				.filter(zdo -> "learned".equals(zdo.getPrefabName())
+						|| Stream.of(zdo.getFloatsByName(), zdo.getVector3sByName(), zdo.getQuatsByName(), zdo.getIntsByName(), zdo.getLongsByName(), zdo.getStringsByName(), zdo.getByteArraysByName())
+								.anyMatch(byName -> byName != null && byName.containsKey("learned")))
+				.count();
+		Assertions.assertEquals((long) unresolved.get(mostFrequent), resolved);
+	}
+}
@@ -1,5 +1,7 @@
 package net.kakoen.valheim.save.test;
 
+import java.util.stream.IntStream;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -16,5 +18,31 @@ public class StableHashCodeTest {
 	public void stableHashCode_shouldReturnCorrectCode_forOwnerName() {
 		Assertions.assertEquals(1227488406, StableHashCode.getStableHashCode("ownerName"));
 	}
+	
+	@Test
+	public void stableHashCode_shouldNotGrowCache_beyondMaximumSize() {
+		StableHashCode.clearCache();
+		IntStream.range(0, StableHashCode.MAX_CACHE_SIZE * 2).parallel().forEach(i -> {
+			String name = "name" + i;
+			Assertions.assertEquals(StableHashCode.computeStableHashCode(name), StableHashCode.getStableHashCode(name));
+		});
+		Assertions.assertTrue(StableHashCode.getCacheSize() <= StableHashCode.MAX_CACHE_SIZE + Runtime.getRuntime().availableProcessors());
+	}
+	
+	@Test
+	public void stableHashCode_shouldCacheNewNames_whenCacheIsFull() {
+		StableHashCode.clearCache();
+		for(int i = 0; i < StableHashCode.MAX_CACHE_SIZE; i++) {
+			StableHashCode.getStableHashCode("name" + i);
+		}
+		Assertions.assertEquals(StableHashCode.MAX_CACHE_SIZE, StableHashCode.getCacheSize());
+		
+		long hits = StableHashCode.getCacheHits();
+		StableHashCode.getStableHashCode("ownerName");
+		Assertions.assertEquals(hits, StableHashCode.getCacheHits());
+		StableHashCode.getStableHashCode("ownerName");
+		Assertions.assertEquals(hits + 1, StableHashCode.getCacheHits());
+		Assertions.assertTrue(StableHashCode.getCacheSize() < StableHashCode.MAX_CACHE_SIZE);
+	}
 
 }